@@ -61,12 +61,17 @@ typedef struct {
 
 typedef struct {
     jmethodID callback;
+    jmethodID direct_callback;
 	jclass clazz;
 	JNIEnv * env;
     UINT64 id;
     SINT32 input_frame_size;
 	SINT32 output_frame_size;
 	UINT8 attached;
+	// stable buffers of direct streams, owned by the Java Stream. NULL otherwise
+	void * direct_input;
+	void * direct_output;
+	UINT32 direct_frames;
 } UserData;
 
 JavaVM * virtual_machine;
@@ -89,7 +94,41 @@ int org_jpab_callback(const void * input, void * output, unsigned long frame_cou
 		data->attached = 1;
 		virtual_machine->AttachCurrentThreadAsDaemon((void **) &data->env, NULL);
 		data->clazz = data->env->FindClass("org/jpab/PortAudio");
-		data->callback = data->env->GetStaticMethodID(data->clazz, "callback", "(ILjava/nio/ByteBuffer;Ljava/nio/ByteBuffer;)I");
+		data->callback = data->env->GetStaticMethodID(data->clazz, "callback", "(ILjava/nio/ByteBuffer;Ljava/nio/ByteBuffer;IDD)I");
+		data->direct_callback = data->env->GetStaticMethodID(data->clazz, "directCallback", "(IIIDD)I");
+	}
+	// age of the input and lead of the output, for telemetry. 0 when the host API gives no timing
+	jdouble input_latency = 0, output_latency = 0;
+	if (time_info != NULL && time_info->currentTime > 0) {
+		if (input != NULL && time_info->inputBufferAdcTime > 0)
+			input_latency = time_info->currentTime - time_info->inputBufferAdcTime;
+		if (output != NULL && time_info->outputBufferDacTime > 0)
+			output_latency = time_info->outputBufferDacTime - time_info->currentTime;
+	}
+	if (data->direct_frames > 0) {
+		// copy into the stable buffers and call Java once per chunk: no Java object is created here
+		unsigned long done = 0;
+		int result = paContinue;
+		while (done < frame_count && result == paContinue) {
+			unsigned long frames = frame_count - done;
+			if (frames > data->direct_frames)
+				frames = data->direct_frames;
+			if (data->direct_input != NULL) {
+				if (input != NULL)
+					memcpy(data->direct_input, (const char *) input + done * data->input_frame_size, frames * data->input_frame_size);
+				else
+					memset(data->direct_input, 0, frames * data->input_frame_size);
+			}
+			// status bits are reported with the first chunk only, so that they are counted once
+			result = (int) data->env->CallStaticIntMethod(data->clazz, data->direct_callback, (jint) data->id, (jint) frames,
+				(jint) (done == 0 ? status_flags : 0), input_latency, output_latency);
+			if (data->direct_output != NULL && output != NULL)
+				memcpy((char *) output + done * data->output_frame_size, data->direct_output, frames * data->output_frame_size);
+			done += frames;
+		}
+		if (done < frame_count && output != NULL)
+			memset((char *) output + done * data->output_frame_size, 0, (frame_count - done) * data->output_frame_size);
+		return result;
 	}
 	const UINT32 input_size = frame_count * data->input_frame_size, output_size = frame_count * data->output_frame_size;
 	
@@ -97,7 +136,8 @@ int org_jpab_callback(const void * input, void * output, unsigned long frame_cou
 	
 	return (int) data->env->CallStaticIntMethod(data->clazz, data->callback, (jint) data->id,
 		input_size > 0 ? data->env->NewDirectByteBuffer((void *) input, (jlong) input_size) : NULL,
-		output_size > 0 ? data->env->NewDirectByteBuffer(output, (jlong) output_size) : NULL
+		output_size > 0 ? data->env->NewDirectByteBuffer(output, (jlong) output_size) : NULL,
+		(jint) status_flags, input_latency, output_latency
 	);
 }
 
@@ -281,6 +321,16 @@ JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamCpuLoad(JNIEnv *env,
 	return Pa_GetStreamCpuLoad((PaStream *) stream_id);
 }
 
+JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamInputLatency(JNIEnv *env, jclass paClass, jlong stream_id) {
+	const PaStreamInfo * info = Pa_GetStreamInfo((PaStream *) stream_id);
+	return info != NULL ? info->inputLatency : 0;
+}
+
+JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamOutputLatency(JNIEnv *env, jclass paClass, jlong stream_id) {
+	const PaStreamInfo * info = Pa_GetStreamInfo((PaStream *) stream_id);
+	return info != NULL ? info->outputLatency : 0;
+}
+
 JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamTime(JNIEnv *env, jclass paClass, jlong stream_id) {
     return Pa_GetStreamTime((PaStream *) stream_id);
 }
@@ -318,7 +368,7 @@ JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_isStreamStopped(JNIEnv *env,
     return error == 1 ? JNI_TRUE : JNI_FALSE;
 }
 
-JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openStream(JNIEnv *env, jclass paClass, jobject byte_buffer) {
+jint org_jpab_open_stream(JNIEnv *env, jobject byte_buffer, jobject direct_input, jobject direct_output, jint direct_frames, jboolean blocking) {
 	StreamConfiguration * stream_configuration = (StreamConfiguration *) env->GetDirectBufferAddress(byte_buffer);
 	PaStreamParameters * input_parameters, * output_parameters;
 	switch (stream_configuration->mode) {
@@ -340,12 +390,21 @@ JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openStream(JNIEnv *env, jclass pa
 	data->input_frame_size = (input_parameters != NULL) ? Pa_GetSampleSize(input_parameters->sampleFormat) * input_parameters->channelCount : 0;
 	data->output_frame_size = (output_parameters != NULL) ? Pa_GetSampleSize(output_parameters->sampleFormat) * output_parameters->channelCount : 0;
 	data->attached = 0;
+	data->direct_input = direct_input != NULL ? env->GetDirectBufferAddress(direct_input) : NULL;
+	data->direct_output = direct_output != NULL ? env->GetDirectBufferAddress(direct_output) : NULL;
+	data->direct_frames = direct_frames;
 	fprintf(stderr, "[JNI] opening stream with frame size: %d. Sample rate: %f\n", data->input_frame_size, stream_configuration->sample_rate);
-	PaError error = Pa_OpenStream(& stream, input_parameters, output_parameters, stream_configuration->sample_rate, paFramesPerBufferUnspecified, stream_configuration->flags, org_jpab_callback, data);
+	// blocking streams have no callback: Pa_ReadStream/Pa_WriteStream are used instead
+	PaError error = Pa_OpenStream(& stream, input_parameters, output_parameters, stream_configuration->sample_rate, paFramesPerBufferUnspecified, stream_configuration->flags, 
+		blocking ? NULL : org_jpab_callback, blocking ? NULL : data);
     if (error != paNoError) {
     	org_jpab_throw_exception(env, & error);
 		return -1;
 	}
+	if (blocking) {
+		free(data);
+		return (long long) stream;
+	}
     error = Pa_SetStreamFinishedCallback(stream, org_jpab_hook);
     if (error != paNoError) {
         org_jpab_throw_exception(env, & error);
@@ -355,6 +414,55 @@ JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openStream(JNIEnv *env, jclass pa
 	return data->id;
 }
 
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openStream(JNIEnv *env, jclass paClass, jobject byte_buffer) {
+	return org_jpab_open_stream(env, byte_buffer, NULL, NULL, 0, JNI_FALSE);
+}
+
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openDirectStream(JNIEnv *env, jclass paClass, jobject byte_buffer, jobject input, jobject output, jint max_frames) {
+	return org_jpab_open_stream(env, byte_buffer, input, output, max_frames, JNI_FALSE);
+}
+
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openBlockingStream(JNIEnv *env, jclass paClass, jobject byte_buffer) {
+	return org_jpab_open_stream(env, byte_buffer, NULL, NULL, 0, JNI_TRUE);
+}
+
+JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_readStream(JNIEnv *env, jclass paClass, jlong stream_id, jobject buffer, jint offset, jint frames) {
+	char * address = (char *) env->GetDirectBufferAddress(buffer);
+	PaError error = Pa_ReadStream((PaStream *) stream_id, address + offset, frames);
+	// the data is still read on overflow, it is only reported
+	if (error == paInputOverflowed) return JNI_FALSE;
+	if (error != paNoError) org_jpab_throw_exception(env, &error);
+	return JNI_TRUE;
+}
+
+JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_writeStream(JNIEnv *env, jclass paClass, jlong stream_id, jobject buffer, jint offset, jint frames) {
+	char * address = (char *) env->GetDirectBufferAddress(buffer);
+	PaError error = Pa_WriteStream((PaStream *) stream_id, address + offset, frames);
+	if (error == paOutputUnderflowed) return JNI_FALSE;
+	if (error != paNoError) org_jpab_throw_exception(env, &error);
+	return JNI_TRUE;
+}
+
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_getStreamReadAvailable(JNIEnv *env, jclass paClass, jlong stream_id) {
+	signed long available = Pa_GetStreamReadAvailable((PaStream *) stream_id);
+	if (available < 0) {
+		PaError error = (PaError) available;
+		org_jpab_throw_exception(env, &error);
+		return 0;
+	}
+	return (jint) available;
+}
+
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_getStreamWriteAvailable(JNIEnv *env, jclass paClass, jlong stream_id) {
+	signed long available = Pa_GetStreamWriteAvailable((PaStream *) stream_id);
+	if (available < 0) {
+		PaError error = (PaError) available;
+		org_jpab_throw_exception(env, &error);
+		return 0;
+	}
+	return (jint) available;
+}
+
 JNIEXPORT void JNICALL Java_org_jpab_PortAudio_startStream(JNIEnv *env, jclass paClass, jlong stream_id) {
     PaError error = Pa_StartStream((PaStream *) stream_id);
     if (error != paNoError) org_jpab_throw_exception(env, (PaError *) &error);
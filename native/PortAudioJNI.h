@@ -119,6 +119,22 @@ JNIEXPORT jobject JNICALL Java_org_jpab_PortAudio_getHostAPIsDevicesAsBuffer
 JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamCpuLoad
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    getStreamInputLatency
+ * Signature: (I)D
+ */
+JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamInputLatency
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    getStreamOutputLatency
+ * Signature: (I)D
+ */
+JNIEXPORT jdouble JNICALL Java_org_jpab_PortAudio_getStreamOutputLatency
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     org_jpab_PortAudio
  * Method:    getStreamTime
@@ -159,6 +175,54 @@ JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_isStreamStopped
 JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openStream
   (JNIEnv *, jclass, jobject);
 
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    openDirectStream
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openDirectStream
+  (JNIEnv *, jclass, jobject, jobject, jobject, jint);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    openBlockingStream
+ * Signature: (Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_openBlockingStream
+  (JNIEnv *, jclass, jobject);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    readStream
+ * Signature: (ILjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_readStream
+  (JNIEnv *, jclass, jlong, jobject, jint, jint);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    writeStream
+ * Signature: (ILjava/nio/ByteBuffer;II)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_jpab_PortAudio_writeStream
+  (JNIEnv *, jclass, jlong, jobject, jint, jint);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    getStreamReadAvailable
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_getStreamReadAvailable
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_jpab_PortAudio
+ * Method:    getStreamWriteAvailable
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_org_jpab_PortAudio_getStreamWriteAvailable
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     org_jpab_PortAudio
  * Method:    startStream
@@ -0,0 +1,89 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Measures how many heap bytes the current thread allocates between begin() and end().
+ * Relies on the HotSpot extension of ThreadMXBean. When that is not available
+ * (or disabled) every measure returns -1.
+ */
+public class AllocationCounter
+{
+	private com.sun.management.ThreadMXBean threadBean = null;
+	private long startBytes = 0;
+	private long lastBytes = -1;
+	private long totalBytes = 0;
+	private long samples = 0;
+
+	public AllocationCounter()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			threadBean = (com.sun.management.ThreadMXBean)bean;
+			if (threadBean.isThreadAllocatedMemorySupported() == false)
+				threadBean = null;
+			else if (threadBean.isThreadAllocatedMemoryEnabled() == false)
+				threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	public boolean isSupported()
+	{
+		return threadBean != null;
+	}
+
+	public void begin()
+	{
+		if (threadBean != null)
+			startBytes = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public void end()
+	{
+		if (threadBean == null)
+			return;
+		lastBytes = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes;
+		totalBytes += lastBytes;
+		samples++;
+	}
+
+	// bytes allocated during the last begin()/end() pair
+	public long getLastBytes()
+	{
+		return lastBytes;
+	}
+
+	public long getTotalBytes()
+	{
+		return totalBytes;
+	}
+
+	public long getSamples()
+	{
+		return samples;
+	}
+
+	public void reset()
+	{
+		lastBytes = -1;
+		totalBytes = 0;
+		samples = 0;
+	}
+}
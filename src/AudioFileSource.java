@@ -0,0 +1,297 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Vector;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.jpab.StreamConfiguration.SampleFormat;
+
+/*
+ * Feeds a WAV or raw PCM file through the same PitchDetector used for live
+ * capture, as fast as the CPU allows. Samples are handed to the detector in
+ * the layout PortAudio delivers (mono, native byte order), in chunks of the
+ * capture buffer size.
+ * The result is a timeline of pitch changes and the throughput in seconds of
+ * audio per second of wall time, to tune and track detection without a sound card.
+ *
+ * Usage: java AudioFileSource file [options]
+ *   -raw rate bits le|be   the file is headerless PCM (default: WAV)
+ *   -fft size              analysis window in samples (default: capture buffer)
+ *   -hop size              samples between frames (default: no overlap)
+ *   -window hann|blackman  analysis window (default: rectangular)
+ *   -yin                   use the YIN estimator instead of the FFT peak
+ */
+public class AudioFileSource implements PitchDetector.FrameListener
+{
+	public static class Event
+	{
+		public double time; // seconds from the beginning of the file
+		public int pitch; // -1 when no pitch is detected
+		public double confidence;
+
+		public Event(double t, int p, double c)
+		{
+			time = t;
+			pitch = p;
+			confidence = c;
+		}
+
+		public String toString()
+		{
+			return String.format("%9.3f  %4d  %.2f", time, pitch, confidence);
+		}
+	}
+
+	PitchDetector detector;
+	InputStream input = null;
+	float sampleRate = 44100;
+	int sampleSizeInBits = 16;
+	int channels = 1;
+	boolean bigEndian = false;
+
+	Vector<Event> timeline = new Vector<Event>();
+	int lastPitch = -1;
+	long samplesRead = 0;
+	long wallNanos = 0;
+
+	public AudioFileSource(PitchDetector d)
+	{
+		detector = d;
+	}
+
+	public void openWav(File file) throws IOException, UnsupportedAudioFileException
+	{
+		AudioInputStream ais = AudioSystem.getAudioInputStream(file);
+		AudioFormat fmt = ais.getFormat();
+		if (fmt.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED) == false &&
+			fmt.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED) == false)
+			throw new UnsupportedAudioFileException("Only PCM files are supported: " + fmt);
+		if (fmt.getSampleSizeInBits() != 8 && fmt.getSampleSizeInBits() != 16)
+			throw new UnsupportedAudioFileException("Only 8 and 16 bit files are supported: " + fmt);
+
+		// 8 bit WAV is unsigned: let Java Sound turn it into the signed bytes PortAudio gives
+		if (fmt.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED))
+		{
+			AudioFormat signedFmt = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, fmt.getSampleRate(), fmt.getSampleSizeInBits(),
+													fmt.getChannels(), fmt.getFrameSize(), fmt.getFrameRate(), fmt.isBigEndian());
+			ais = AudioSystem.getAudioInputStream(signedFmt, ais);
+			fmt = signedFmt;
+		}
+		input = ais;
+		sampleRate = fmt.getSampleRate();
+		sampleSizeInBits = fmt.getSampleSizeInBits();
+		channels = fmt.getChannels();
+		bigEndian = fmt.isBigEndian();
+	}
+
+	// headerless signed PCM
+	public void openRaw(File file, float rate, int sampleBits, int numChannels, boolean isBigEndian) throws IOException
+	{
+		input = new BufferedInputStream(new FileInputStream(file));
+		sampleRate = rate;
+		sampleSizeInBits = sampleBits;
+		channels = numChannels;
+		bigEndian = isBigEndian;
+	}
+
+	public float getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	public int getSampleSizeInBits()
+	{
+		return sampleSizeInBits;
+	}
+
+	/*
+	 * Decodes the whole file and pushes it through the detector.
+	 * The detector must already be configured for this file's rate and sample size
+	 */
+	public void run(int chunkBytes) throws IOException
+	{
+		int bytesPerSample = sampleSizeInBits / 8;
+		int frameBytes = bytesPerSample * channels;
+		int chunkFrames = chunkBytes / bytesPerSample;
+		byte[] fileBuf = new byte[chunkFrames * frameBytes];
+		ByteBuffer chunk = ByteBuffer.allocateDirect(chunkFrames * bytesPerSample).order(ByteOrder.nativeOrder());
+
+		timeline.clear();
+		lastPitch = -1;
+		samplesRead = 0;
+		detector.setFrameListener(this);
+		detector.reset();
+
+		long start = System.nanoTime();
+		int len;
+		while ((len = readFully(fileBuf)) > 0)
+		{
+			int frames = len / frameBytes;
+			chunk.clear();
+			for (int f = 0; f < frames; f++)
+			{
+				// downmix to mono by averaging the channels
+				int sum = 0;
+				for (int c = 0; c < channels; c++)
+					sum += decodeSample(fileBuf, f * frameBytes + c * bytesPerSample);
+				int sample = sum / channels;
+				if (bytesPerSample == 1)
+					chunk.put((byte)sample);
+				else
+					chunk.putShort((short)sample);
+			}
+			chunk.flip();
+			detector.process(chunk);
+			samplesRead += frames;
+		}
+		wallNanos = System.nanoTime() - start;
+		input.close();
+	}
+
+	private int readFully(byte[] buf) throws IOException
+	{
+		int total = 0;
+		while (total < buf.length)
+		{
+			int n = input.read(buf, total, buf.length - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	private int decodeSample(byte[] buf, int idx)
+	{
+		if (sampleSizeInBits == 8)
+			return buf[idx];
+		if (bigEndian == true)
+			return (buf[idx] << 8) | (buf[idx + 1] & 0xFF);
+		return (buf[idx + 1] << 8) | (buf[idx] & 0xFF);
+	}
+
+	public void frameAnalyzed(PitchDetector d, boolean validPeak)
+	{
+		int pitch = -1;
+		if (validPeak == true)
+			pitch = PitchMath.pitchFromFrequency(d.getFrequency());
+		if (pitch == lastPitch)
+			return;
+		lastPitch = pitch;
+		timeline.add(new Event(d.getFrameTime() / (double)sampleRate, pitch, d.getConfidence()));
+	}
+
+	public Vector<Event> getTimeline()
+	{
+		return timeline;
+	}
+
+	public double getAudioSeconds()
+	{
+		return samplesRead / (double)sampleRate;
+	}
+
+	public double getWallSeconds()
+	{
+		return wallNanos / 1e9;
+	}
+
+	// seconds of audio processed per second of wall time
+	public double getThroughput()
+	{
+		return wallNanos > 0 ? getAudioSeconds() / getWallSeconds() : 0;
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: AudioFileSource file [-raw rate bits le|be] [-fft size] [-hop size] [-window hann|blackman] [-yin]");
+			System.exit(1);
+		}
+
+		PitchDetector detector = new PitchDetector();
+		AudioFileSource source = new AudioFileSource(detector);
+		int bufferSize = 4096; // same as AudioInputController
+		int fftSize = 0, hopSize = 0;
+		int windowType = WindowFunction.RECTANGULAR;
+		boolean raw = false;
+		float rawRate = 44100;
+		int rawBits = 16;
+		boolean rawBigEndian = false;
+
+		try {
+			for (int i = 1; i < args.length; i++)
+			{
+				if ("-raw".equals(args[i]))
+				{
+					raw = true;
+					rawRate = Float.parseFloat(args[++i]);
+					rawBits = Integer.parseInt(args[++i]);
+					rawBigEndian = "be".equals(args[++i]);
+				}
+				else if ("-fft".equals(args[i]))
+					fftSize = Integer.parseInt(args[++i]);
+				else if ("-hop".equals(args[i]))
+					hopSize = Integer.parseInt(args[++i]);
+				else if ("-window".equals(args[i]))
+				{
+					i++;
+					if ("hann".equals(args[i]))
+						windowType = WindowFunction.HANN;
+					else if ("blackman".equals(args[i]))
+						windowType = WindowFunction.BLACKMAN;
+				}
+				else if ("-yin".equals(args[i]))
+					detector.setEstimator(new YinPitchEstimator());
+			}
+
+			File file = new File(args[0]);
+			if (raw == true)
+				source.openRaw(file, rawRate, rawBits, 1, rawBigEndian);
+			else
+				source.openWav(file);
+
+			int windowSize = fftSize > 0 ? fftSize : bufferSize / (source.getSampleSizeInBits() / 8);
+			detector.configure(windowSize, hopSize > 0 ? hopSize : windowSize, windowType, source.getSampleRate(),
+							   source.getSampleSizeInBits() == 8 ? SampleFormat.SIGNED_INTEGER_8 : SampleFormat.SIGNED_INTEGER_16);
+			source.run(bufferSize);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+
+		System.out.println("     time  pitch  confidence");
+		for (Event e : source.getTimeline())
+			System.out.println(e);
+		System.out.println(String.format("%.2f s of audio in %.3f s: %.1fx real time",
+						   source.getAudioSeconds(), source.getWallSeconds(), source.getThroughput()));
+	}
+}
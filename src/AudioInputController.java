@@ -16,51 +16,84 @@ along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
 
 **********************************************/
 
+import java.util.List;
 import java.util.Vector;
 
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.TargetDataLine;
 
 import java.io.File;
 import java.io.FileWriter;
-import java.nio.channels.FileChannel;
-import java.io.FileOutputStream;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
 
 import org.jpab.*;
 import org.jpab.StreamConfiguration.SampleFormat;
 
-public class AudioInputController
+public class AudioInputController implements PitchDetector.FrameListener, PolyphonicDetector.NoteListener, OnsetDetector.NoteListener
 {
 	Preferences appPrefs;
-	Vector<Double> freqList = new Vector<Double>(); // vector holding the generated frequencies lookup table
+	PitchDetector detector = new PitchDetector(); // reusable FFT engine. Allocates only when buffer size changes
 	Vector<String> audioDevList = new Vector<String>(); // list of available device (Java + ASIO)
 	
 	// PortAudio variables
-	Device paInputDev = null;
+	String paInputKey = null; // registry key of the input device. Resolved when the capture starts
 	Stream paStream = null;
+	boolean registryAcquired = false; // PortAudio is held through DeviceRegistry while capturing from a device
 	//private float[] PortAudioFFTBuffer; // buffer on which FFT is performed. Try to reach 4k
 	//private int PortAudioBufferSize = 0; // buffer received from ASIO. Can have any user-defined size
 	//private int PortAudioBufferMax = 0;  // number of ASIO buffer to accumulate into asioSoundBuffer
 	//private int PortAudioBufferCount = 0; // counter of cumulative ASIO buffers
 
 	float sampleRate = 44100;
-	int sampleSizeInBits = 16;
+	SampleFormat sampleFormat = SampleFormat.SIGNED_INTEGER_16;
+	int inputChannels = 1;
+	int analysisChannel = PitchDetector.MIX;
+	boolean blockingIO = false; // read the device from the analysis thread instead of using a callback
 	int bufferSize = 4096;
+	int fftSize = 0; // analysis window in samples. 0 means one capture buffer
+	int hopSize = 0; // samples between two analysis frames. 0 means no overlap
+	int windowType = WindowFunction.RECTANGULAR;
 	AudioFormat inputFormat;
 	TargetDataLine inputLine;
 	int sensitivity = 40;
 	long latency = 0;
-	int previousVolume = 0;
+	double lastCents = 0;
+
+	// single notes are started and stopped by the onset detector
+	OnsetDetector onsetDetector = new OnsetDetector();
+	int bytesPerFrame = 2;
+	long chunkNanos = 0; // System.nanoTime() when the end of the last chunk was captured
+	long chunkEndSample = 0; // sample position, since the detector reset, of the end of that chunk
+	long inputLatencyNanos = 0;
+
+	// chord detection. Notes are sent to noteReceiver like the ones of a MIDI keyboard
+	boolean polyphonic = false;
+	PolyphonicDetector polyDetector = new PolyphonicDetector();
+	Receiver noteReceiver = null;
+	ShortMessage noteMessage = new ShortMessage(); // reused for every note event
 
 	boolean infoEnabled = false;
 	AudioMonitor audioMon;
 	int currentVolume = 0;
 
 	//private AudioCaptureThread captureThread = null;
-	boolean captureStarted = false;
+	volatile boolean captureStarted = false;
+
+	// the PortAudio callback only decodes its input buffer into the ring, with its own decoder.
+	// Detection runs on analysisThread, which drains it chunk by chunk
+	SampleRingBuffer ringBuffer = new SampleRingBuffer(bufferSize * 16);
+	SampleDecoder captureDecoder = new SampleDecoder();
+	private AudioAnalysisThread analysisThread = null;
+	private BlockingCaptureThread blockingThread = null;
+
+	// session recorder. Fed by the callback without blocking it
+	WavRecorder recorder = new WavRecorder(bufferSize * 64);
 
 	public AudioInputController(Preferences p)
 	{
@@ -70,67 +103,73 @@ public class AudioInputController
 
 	public boolean initialize() 
 	{
-	    initFrequenciesList();
+	    int prefValue = Integer.parseInt(appPrefs.getProperty("audioFFTSize"));
+	    fftSize = prefValue > 0 ? prefValue : 0;
+	    prefValue = Integer.parseInt(appPrefs.getProperty("audioHopSize"));
+	    hopSize = prefValue > 0 ? prefValue : 0;
+	    prefValue = Integer.parseInt(appPrefs.getProperty("audioWindow"));
+	    windowType = prefValue > 0 ? prefValue : WindowFunction.RECTANGULAR;
+	    if (Integer.parseInt(appPrefs.getProperty("audioPitchEstimator")) == 1)
+	    	detector.setEstimator(new YinPitchEstimator());
+	    polyphonic = Integer.parseInt(appPrefs.getProperty("audioPolyphonic")) == 1;
+	    prefValue = Integer.parseInt(appPrefs.getProperty("audioChannels"));
+	    inputChannels = prefValue > 0 ? prefValue : 1;
+	    analysisChannel = Integer.parseInt(appPrefs.getProperty("audioChannel"));
+	    blockingIO = Integer.parseInt(appPrefs.getProperty("audioBlockingIO")) == 1;
+	    polyDetector.setNoteListener(this);
+	    onsetDetector.setNoteListener(this);
+	    onsetDetector.setSensitivity(100 - sensitivity);
 
 	    String userAudioDev = appPrefs.getProperty("inputDevice");
 		if (userAudioDev == "-1" || userAudioDev.split(",")[0].equals("MIDI"))
 			return false;
 		
-		int audioDevIndex = Integer.parseInt(userAudioDev.split(",")[1]);
-			
-	    audioDevList = getDevicesList(audioDevIndex);
+		// the device is stored by registry key ("name [host API]"). Older preferences stored its PortAudio index
+	    audioDevList = getDevicesList(userAudioDev.split(",", 2)[1]);
 
 		return true;
 	}
 
-	public void initFrequenciesList()
-	{
-		double freqFactor = Math.pow(2, 1.0/12.0); // calculate the factor between frequencies
-		double aFreq = 27.50;
-		double currFreq = 16.35; // frequency of C0
-		
-		freqList.clear();
-		
-		for (int oct = 0; oct < 7; oct++)
-		{
-			for (int i = 0; i < 12; i++) // 12 notes. Includes semitones
-			{
-				if (i == 9) // back on track when encounter an A
-				{
-					currFreq = aFreq;
-					aFreq*=2;
-				}
-				freqList.add(currFreq);
-				//System.out.print(" | " + currFreq);
-				currFreq *= freqFactor;
-			}
-			//System.out.print("\n");
-		}
-	}
-
-	public Vector<String> getDevicesList(int devIdx)
+	/*
+	 * Lists the input devices from the PortAudio device registry and selects devKey.
+	 * The device itself is looked up by startCapture(), since it may be unplugged or
+	 * renumbered by a registry refresh in the meantime
+	 */
+	public Vector<String> getDevicesList(String devKey)
 	{
-		int tmpIdx = 0;
 		Vector<String> devList = new Vector<String>();
 
+		paInputKey = devKey;
 		try {
-			PortAudio.initialize();
-			for (Device device : PortAudio.getDevices()) 
+			for (Device device : DeviceRegistry.getInputDevices()) 
 			{
-				if (device.getMaxInputChannels() > 0)
-				{
-					//System.out.println(device);
-					devList.add(device.getName());
-					if (tmpIdx == devIdx)
-						paInputDev = device;
-					tmpIdx++;
-				}
+				String key = DeviceRegistry.getKey(device);
+				devList.add(key);
+				if (String.valueOf(DeviceRegistry.getIndex(device)).equals(devKey))
+					paInputKey = key;
 			}
 		} catch (PortAudioException e) { 
 			e.printStackTrace();
 		};
 		return devList;
 	}
+
+	/*
+	 * Returns the selected input device, or the first one if it is no longer connected.
+	 * Must be called while the registry is acquired, so that the device stays valid until the stream is open
+	 */
+	private Device findInputDevice() throws PortAudioException
+	{
+		Device device = DeviceRegistry.find(paInputKey);
+		if (device != null && device.getMaxInputChannels() > 0)
+			return device;
+		List<Device> inputs = DeviceRegistry.getInputDevices();
+		if (inputs.size() == 0)
+			return null;
+		device = inputs.get(0);
+		System.out.println("[AudioInputController] device " + paInputKey + " not found. Using " + DeviceRegistry.getKey(device));
+		return device;
+	}
 	
 	public void enableInfo(AudioMonitor am)
 	{
@@ -138,171 +177,488 @@ public class AudioInputController
 		audioMon = am;
 	}
 	
+	/*
+	 * Returns the MIDI pitch nearest to freq, or 0 if there is none.
+	 * The deviation in cents is kept in lastCents
+	 */
 	public int frequencyLookup(double freq)
 	{
-		int startIdx = 0;
-		if (freq > freqList.get(freqList.size() / 2))
-			startIdx = freqList.size() / 2;
-		for (int i = startIdx; i < freqList.size(); i++)
-		{
-			if (freq < freqList.get(i))
-				return i + 23;
-		}
-		return 0;
+		int pitch = PitchMath.pitchFromFrequency(freq);
+		if (pitch < 0)
+			return 0;
+		lastCents = PitchMath.centsFromFrequency(freq);
+		return pitch;
 	}
-	
+
+	// deviation of the last looked up frequency from its pitch. Positive means sharp
+	public double getLastCents()
+	{
+		return lastCents;
+	}
+
+	/*
+	 * Sets the short-time analysis parameters. Takes effect on the next startCapture().
+	 * For example 4096 samples windows with a 512 samples hop and WindowFunction.HANN
+	 */
+	public void setAnalysisWindow(int size, int hop, int type)
+	{
+		fftSize = size;
+		hopSize = hop;
+		windowType = type;
+	}
+
+	/*
+	 * Replaces the pitch estimation strategy (FFTPeakEstimator by default)
+	 */
+	public void setPitchEstimator(PitchEstimator e)
+	{
+		detector.setEstimator(e);
+	}
+
+	/*
+	 * Enables the detection of chords and intervals. Takes effect on the next startCapture()
+	 */
+	public void setPolyphonic(boolean enable)
+	{
+		polyphonic = enable;
+	}
+
+	/*
+	 * Receiver of the notes detected from audio. ScoreDate passes the
+	 * same receiver used for the MIDI input device
+	 */
+	public void setNoteReceiver(Receiver r)
+	{
+		noteReceiver = r;
+	}
+
+	/*
+	 * Sample format requested to the input device. Takes effect on the next startCapture().
+	 * Unsigned 8 bit is not accepted because the WAV recorder expects signed samples
+	 */
+	public void setSampleFormat(SampleFormat fmt)
+	{
+		if (fmt == SampleFormat.UNSIGNED_INTEGER_8)
+			throw new IllegalArgumentException("Unsigned 8 bit capture is not supported");
+		fmt.getSize(); // rejects unknown formats
+		sampleFormat = fmt;
+	}
+
+	/*
+	 * Number of channels to capture, and the one pitch detection listens to
+	 * (PitchDetector.MIX for all of them). Takes effect on the next startCapture()
+	 */
+	public void setInputChannels(int numChannels, int channel)
+	{
+		inputChannels = Math.max(1, numChannels);
+		analysisChannel = channel;
+	}
+
+	/*
+	 * With blocking I/O the analysis thread reads the device itself, with its own pacing:
+	 * there is no JNI upcall per buffer and no ring buffer in between.
+	 * Takes effect on the next startCapture()
+	 */
+	public void setBlockingIO(boolean enable)
+	{
+		blockingIO = enable;
+	}
+
 	public void setSensitivity(int s)
 	{
 		System.out.println("Set new sensitivity: " + s);
 		sensitivity = 100 - s;
+		onsetDetector.setSensitivity(s);
 	}
 
 	public void startCapture()
 	{
 		if (captureStarted == true)
+			stopCapture();
+		StreamConfiguration InputStream = new StreamConfiguration();
+		try {
+			// the device list cannot be rebuilt while the registry is held
+			DeviceRegistry.acquire();
+			registryAcquired = true;
+			Device paInputDev = findInputDevice();
+			if (paInputDev == null)
+			{
+				System.out.println("[AudioInputController] no input device");
+				releaseRegistry();
+				return;
+			}
+			InputStream.setMode(StreamConfiguration.Mode.INPUT_ONLY);
+			InputStream.setInputDevice(paInputDev);
+			InputStream.setInputFormat(sampleFormat);
+			//InputStream.setSampleRate(paInputDev.getDefaultSampleRate());
+			InputStream.setSampleRate(sampleRate);
+			InputStream.setInputLatency(paInputDev.getDefaultLowInputLatency());
+			InputStream.setInputChannels(inputChannels);
+		} catch (PortAudioException ex) { 
+			ex.printStackTrace();
+			releaseRegistry();
+			return;
+		}
+
+		if (blockingIO == true)
 		{
 			try {
-				paStream.stop();
-			} catch (PortAudioException ex) {  }
-			paStream = null;
+				startCapture(PortAudio.createBlockingStream(InputStream));
+			} catch (PortAudioException ex) { 
+				ex.printStackTrace();
+				releaseRegistry();
+			}
+			return;
 		}
-		StreamConfiguration InputStream = new StreamConfiguration();
-		InputStream.setMode(StreamConfiguration.Mode.INPUT_ONLY);
-		InputStream.setInputDevice(paInputDev);
-		if (sampleSizeInBits == 16)
-			InputStream.setInputFormat(SampleFormat.SIGNED_INTEGER_16);
-		else
-			InputStream.setInputFormat(SampleFormat.SIGNED_INTEGER_8);
-		//InputStream.setSampleRate(paInputDev.getDefaultSampleRate());
-		InputStream.setSampleRate(sampleRate);
-		InputStream.setInputLatency(paInputDev.getDefaultLowInputLatency());
-		InputStream.setInputChannels(1);
+
+		int chunkSize = prepareAnalysis();
+		captureDecoder.setFormat(sampleFormat);
+		ringBuffer.reset();
+		captureStarted = true;
+		analysisThread = new AudioAnalysisThread(chunkSize / bytesPerFrame * inputChannels);
+		analysisThread.start();
+		final AudioAnalysisThread consumer = analysisThread;
 		try {
-			paStream = PortAudio.createStream(InputStream, new Callback() {
-			public State callback(ByteBuffer input, ByteBuffer output) {
-				System.out.println("Input buffer received ! Size: " + input.capacity() );
-				performPeakDetection(input); // <------- perform magic here :)
-				return State.RUNNING;
+			// the stream hands out the same direct input buffer on every callback, nothing is allocated per buffer
+			paStream = PortAudio.createDirectStream(InputStream, new DirectCallback() {
+			public Callback.State callback(Stream stream, int frames) {
+				// runs on the native audio thread: no allocation, no I/O, no UI here
+				ByteBuffer input = stream.getInputBuffer();
+				// decoded straight from native memory. The buffer is complete when the callback runs
+				ringBuffer.write(input, captureDecoder, System.nanoTime());
+				consumer.wakeUp();
+				if (recorder.isRecording() == true)
+				{
+					input.rewind();
+					recorder.write(input);
+				}
+				return Callback.State.RUNNING;
 			  }
 			}, new Runnable() {
 				public void run() {
-					try {
-						PortAudio.terminate();
-					} catch (PortAudioException ignore) { ignore.printStackTrace(); }
+					// the stream is closed, and PortAudio released, by stopCapture()
 				}
 			});
 			paStream.start();
+			inputLatencyNanos = (long)(paStream.getInputLatency() * 1e9);
+			if (infoEnabled == true)
+			{
+				// while the audio monitor is open, log the stream health every few seconds
+				paStream.getTelemetry().startReporting(5000, new StreamTelemetry.Listener() {
+					public void telemetry(Stream stream, StreamTelemetry.Snapshot snapshot) {
+						System.out.println("[AudioInputController] stream " + snapshot);
+					}
+				});
+			}
 			//Thread.sleep(24000);
-		} catch (PortAudioException ex) {  }
+		} catch (PortAudioException ex) { 
+			ex.printStackTrace();
+		}
+	}
+
+	/*
+	 * Captures from a stream read by the analysis thread itself. The stream is started here
+	 * and closed by stopCapture(). Also accepts an org.jpab.FakeBlockingStream, to run without a device
+	 */
+	public void startCapture(BlockingStream stream)
+	{
+		if (captureStarted == true)
+			stopCapture();
+		StreamConfiguration config = stream.getConfiguration();
+		sampleFormat = config.getInputFormat();
+		sampleRate = (float)config.getSampleRate();
+		inputChannels = config.getInputChannels();
+		int chunkSize = prepareAnalysis();
 		captureStarted = true;
+		try {
+			inputLatencyNanos = (long)(stream.getInputLatency() * 1e9);
+		} catch (PortAudioException ex) { }
+		blockingThread = new BlockingCaptureThread(stream, chunkSize / bytesPerFrame);
+		blockingThread.start();
+	}
+
+	// configures the detectors for the current format. Returns the analysis chunk size in bytes
+	private int prepareAnalysis()
+	{
+		// FFT plans and buffers are allocated here, once per stream configuration
+		bytesPerFrame = sampleFormat.getSize() * inputChannels;
+		int windowSize = fftSize > 0 ? fftSize : bufferSize / bytesPerFrame;
+		int hop = hopSize > 0 ? hopSize : windowSize;
+		detector.configure(windowSize, hop, windowType, sampleRate, sampleFormat, inputChannels);
+		detector.setChannel(analysisChannel);
+		detector.setFrameListener(this);
+		detector.reset();
+		chunkEndSample = 0;
+		inputLatencyNanos = 0;
+		onsetDetector.configure(windowSize, detector.getHopSize(), sampleRate);
+		if (polyphonic == true)
+			polyDetector.configure(windowSize, sampleRate, 1.0, detector.getWindowGain()); // the detector normalizes samples
+		// chunks hold whole frames, also for 3 byte formats
+		return Math.min(hop, bufferSize / bytesPerFrame) * bytesPerFrame;
+	}
+
+	// callback statistics of the running capture stream, or null
+	public StreamTelemetry getStreamTelemetry()
+	{
+		Stream s = paStream;
+		return s != null ? s.getTelemetry() : null;
 	}
 
 	public void stopCapture()
 	{
 		try {
 			if (paStream != null)
+			{
 				paStream.stop();
+				paStream.getTelemetry().stopReporting();
+				System.out.println("[AudioInputController] stream " + paStream.getTelemetry().snapshot());
+				paStream.close();
+			}
 		} catch (PortAudioException ex) {  }
 		paStream = null;
 		captureStarted = false;
+		if (analysisThread != null)
+		{
+			analysisThread.wakeUp();
+			try {
+				analysisThread.join(500);
+			} catch (InterruptedException e) { }
+			analysisThread = null;
+		}
+		if (blockingThread != null)
+		{
+			try {
+				blockingThread.join(500); // a read lasts at most one chunk
+			} catch (InterruptedException e) { }
+			blockingThread = null;
+		}
+		releaseRegistry();
+		polyDetector.reset(); // release the notes still sounding
+		if (onsetDetector.getActivePitch() > 0)
+			noteEvent(onsetDetector.getActivePitch(), 0, -1);
+		onsetDetector.reset();
+		if (infoEnabled == true)
+			audioMon.getSnapshot().clear(); // the analysis thread is gone, publishing from here is safe
+		System.out.println("[AudioInputController] capture stopped. Overruns: " + ringBuffer.getOverruns() + 
+						   ", max backlog: " + ringBuffer.getMaxBacklog() + 
+						   " of " + ringBuffer.capacity() + " samples");
+	}
+
+	private void releaseRegistry()
+	{
+		if (registryAcquired == true)
+			DeviceRegistry.release();
+		registryAcquired = false;
+	}
+
+	// number of callback buffers dropped because the analysis thread fell behind
+	public long getOverruns()
+	{
+		return ringBuffer.getOverruns();
+	}
+
+	// most captured samples waiting for the analysis thread since the capture started
+	public int getMaxBacklog()
+	{
+		return ringBuffer.getMaxBacklog();
 	}
 	
-	public void saveToFile(ByteBuffer buf)
+	/*
+	 * Starts writing the captured audio to a WAV file. Works while capture is running
+	 * or before it starts. The file is written by a background thread
+	 */
+	public void startRecording(File file) throws IOException
+	{
+		recorder.start(file, (int)sampleRate, sampleFormat.getSize() * 8, inputChannels, sampleFormat == SampleFormat.FLOAT_32);
+	}
+
+	public void stopRecording()
+	{
+		recorder.stop();
+	}
+
+	// endNanos is when the last sample of tmpBuf was captured, on the System.nanoTime() clock
+	private void performPeakDetection(ByteBuffer tmpBuf, long endNanos)
+	{
+		// anchors the sample positions of this chunk to the system clock, for the note timestamps
+		chunkNanos = endNanos;
+		chunkEndSample += tmpBuf.remaining() / bytesPerFrame;
+		detector.enableVolume(infoEnabled);
+		detector.process(tmpBuf); // frameAnalyzed is called for every completed frame
+	}
+
+	// like above, for count interleaved samples already decoded by the callback
+	private void performPeakDetection(float[] samples, int count, long endNanos)
+	{
+		chunkNanos = endNanos;
+		chunkEndSample += count / inputChannels;
+		detector.enableVolume(infoEnabled);
+		detector.process(samples, 0, count);
+	}
+
+	public void frameAnalyzed(PitchDetector d, boolean validPeak)
+	{
+		currentVolume = d.getVolume();
+
+		if (polyphonic == true)
+			polyDetector.analyze(d.getMagnitude()); // may call noteEvent
+
+		SpectrumSnapshot monitor = infoEnabled == true ? audioMon.getSnapshot() : null;
+		if (monitor != null)
+			monitor.setVolume(currentVolume);
+
+		int pitch = 0;
+		if (validPeak == true)
+		{
+			pitch = frequencyLookup(d.getFrequency());
+			if (monitor != null)
+				monitor.setSpectrum(d.getMagnitude(), sampleRate);
+		}
+		//System.out.println("[AudioCaptureThread] FFT took " + (System.currentTimeMillis() - time) + "ms");
+
+		if (polyphonic == false)
+			onsetDetector.analyze(d.getMagnitude(), d.getFrame(), d.getFrameTime(), pitch); // may call noteOn/noteOff
+
+		if (monitor != null)
+		{
+			monitor.setPitch(polyphonic == false ? onsetDetector.getActivePitch() : pitch, lastCents);
+			monitor.publish(); // the monitor pulls it on the Swing thread
+		}
+	}
+
+	public void noteOn(int pitch, int velocity, long sampleTime)
+	{
+		noteEvent(pitch, velocity, sampleNanos(sampleTime) / 1000);
+	}
+
+	public void noteOff(int pitch, long sampleTime)
 	{
-		File file = new File("audioCap.wav");
+		noteEvent(pitch, 0, sampleNanos(sampleTime) / 1000);
+	}
 
-		// Set to true if the bytes should be appended to the file;
-		// set to false if the bytes should replace current bytes
-		// (if the file exists)
-		boolean append = true;
+	// chords are detected frame by frame: they are timestamped with the end of the frame
+	public void noteEvent(int pitch, int velocity)
+	{
+		noteEvent(pitch, velocity, sampleNanos(detector.getFrameTime()) / 1000);
+	}
 
+	/*
+	 * Sends a note to noteReceiver as a NOTE_ON message (velocity 0 for note off).
+	 * timestamp is in microseconds on the System.nanoTime() clock, or -1 if unknown
+	 */
+	public void noteEvent(int pitch, int velocity, long timestamp)
+	{
+		if (noteReceiver == null)
+			return;
 		try {
-		    // Create a writable file channel
-		    FileChannel wChannel = new FileOutputStream(file, append).getChannel();
+			noteMessage.setMessage(ShortMessage.NOTE_ON, 0, pitch, velocity);
+			noteReceiver.send(noteMessage, timestamp);
+		} catch (InvalidMidiDataException e) { }
+	}
 
-		    // Write the ByteBuffer contents; the bytes between the ByteBuffer's
-		    // position and the limit is written to the file
-		    wChannel.write(buf);
+	// when the sample at position sampleTime entered the device, on the System.nanoTime() clock
+	private long sampleNanos(long sampleTime)
+	{
+		return chunkNanos - (long)((chunkEndSample - sampleTime) * 1e9 / sampleRate) - inputLatencyNanos;
+	}
 
-		    // Close the file
-		    wChannel.close();
-		} catch (IOException e) { }
+	// bytes allocated on the heap by the last detection pass. Should be 0 in steady state
+	public long getDetectionAllocatedBytes()
+	{
+		return detector.getLastAllocatedBytes();
 	}
-	
-	private void performPeakDetection(ByteBuffer tmpBuf)
-	{
-		int bufLength = tmpBuf.capacity();
-		//saveToFile(tmpBuf); // Just for debug: this call prevents the FFT to work
-		System.out.println("Performing FFT on " + bufLength + " bytes");
-		DoubleFFT_1D fft = new DoubleFFT_1D(bufLength);
-		double[] audioDataDoubles = new double[bufLength*2];
-
-	    currentVolume = 0;
-	    
-        if (sampleSizeInBits == 8)
-	    {
-    	    for (int i = 0, j = 0; i < bufLength; i++, j+=2)
-		    {
-    	    	byte tmpByte = tmpBuf.get();
-    	    	if (infoEnabled == true && tmpByte > currentVolume)
-    	    		currentVolume = (int)tmpByte;
-    	    	if (tmpByte < -5 || tmpByte > 5)
-    	    		audioDataDoubles[j] = (double)tmpByte; // real part
-    	    	else
-    	    		audioDataDoubles[j] = 0;
-    	    	audioDataDoubles[j + 1] = 0; // imaginary part
-		    }
-	    }
-	    else if (sampleSizeInBits == 16)
-	    {
-	        for (int j = 0; j < bufLength; j+=2) // convert audio data to double[] real, imaginary
-	        {
-	        	byte tmpByteMSB = tmpBuf.get();
-	        	byte tmpByteLSB = tmpBuf.get();
-	        	int sampleInt = tmpByteMSB << 8 + tmpByteLSB;
-	        	if (infoEnabled == true && sampleInt > currentVolume)
-	        		currentVolume = sampleInt;
-	    		
-	        	audioDataDoubles[j] = (double)sampleInt; // real part
-	        	audioDataDoubles[j + 1] = 0; // imaginary part
-	        }
-	    }
-	    
-	    if (infoEnabled == true)
-	    	audioMon.showVolume(currentVolume);
-
-	    fft.complexForward(audioDataDoubles);
-	    
-	    // calculate vector magnitude and extract highest peak
-	    double[] magnitude = new double[bufLength];
-	    double peak = 0;
-	    int peakIdx = 0;
-	    for (int j = 0, i = 0; j < bufLength*2; j+=2, i++)
-	    {				    	
-	    	magnitude[i] = Math.sqrt(audioDataDoubles[j]*audioDataDoubles[j] + audioDataDoubles[j+1]*audioDataDoubles[j+1]);
-	    	if ( magnitude[i] > peak)
-	    	{
-	    		peak = magnitude[i];
-	    		peakIdx = i;
-	    	}
-	    }
-	    
-	    double frequency = (sampleRate * peakIdx) / (bufLength * 2);
-	    if (frequency > 2000)
-	    	return;
-	    if (infoEnabled == true)
-	    	audioMon.showSpectrum(magnitude);
-	    //System.out.println("[AudioCaptureThread] FFT took " + (System.currentTimeMillis() - time) + "ms");
-	    System.out.println("[AudioCaptureThread] Peak at: " + frequency + "Hz (value: " + peak + ")");
-	    
-	    if ( currentVolume - previousVolume > sensitivity)
+
+	// ************************** analysis thread ******************************
+
+	private class AudioAnalysisThread extends Thread 
+	{
+		float[] chunk;
+
+		// chunkSamples is the number of interleaved samples handed to the detector at a time. 
+		// Keeping it around one hop lets frames be analyzed as soon as they are complete
+		public AudioAnalysisThread(int chunkSamples)
 		{
-			int pitch = frequencyLookup(frequency);
-			if (infoEnabled == true)
-				audioMon.showPitch(pitch);
+			super("AudioAnalysisThread");
+			chunk = new float[chunkSamples];
+			setDaemon(true);
+			setPriority(Thread.MAX_PRIORITY - 1);
+		}
+
+		public void wakeUp()
+		{
+			LockSupport.unpark(this);
+		}
+
+		public void run() 
+		{
+			System.out.println("[AudioAnalysisThread] started");
+			ConcurrencyUtils.setRealtimeThread(true); // FFTs of this thread never wait for the pool
+			while (captureStarted)
+			{
+				// only read when a whole chunk is there
+				if (ringBuffer.available() < chunk.length)
+				{
+					LockSupport.parkNanos(5000000); // woken up by the callback as soon as data arrives
+					continue;
+				}
+				ringBuffer.read(chunk, 0, chunk.length);
+				performPeakDetection(chunk, chunk.length, ringBuffer.captureNanos(ringBuffer.getReadPosition(), sampleRate * inputChannels));
+			}
+			System.out.println("[AudioAnalysisThread] finished");
+		}
+	}
+
+	// reads the stream directly: one thread does capture, recording and analysis
+	private class BlockingCaptureThread extends Thread
+	{
+		BlockingStream stream;
+		ByteBuffer buffer;
+		int frames;
+
+		public BlockingCaptureThread(BlockingStream s, int chunkFrames)
+		{
+			super("BlockingCaptureThread");
+			stream = s;
+			frames = chunkFrames;
+			StreamConfiguration config = s.getConfiguration();
+			buffer = ByteBuffer.allocateDirect(frames * config.getInputFormat().getSize() * config.getInputChannels());
+			setDaemon(true);
+			setPriority(Thread.MAX_PRIORITY - 1);
+		}
+
+		public void run()
+		{
+			System.out.println("[BlockingCaptureThread] started");
+			ConcurrencyUtils.setRealtimeThread(true);
+			long overflows = 0;
+			try {
+				stream.start();
+				while (captureStarted)
+				{
+					buffer.clear();
+					if (stream.read(buffer, frames) == false)
+						overflows++;
+					long nanos = System.nanoTime(); // the read returns as soon as its last frame is captured
+					buffer.flip();
+					if (recorder.isRecording() == true)
+					{
+						recorder.write(buffer);
+						buffer.rewind();
+					}
+					performPeakDetection(buffer, nanos);
+				}
+				stream.stop();
+			} catch (PortAudioException ex) {
+				ex.printStackTrace();
+			} finally {
+				try {
+					stream.close();
+				} catch (PortAudioException ignore) { }
+			}
+			System.out.println("[BlockingCaptureThread] finished. Input overflows: " + overflows);
 		}
-		previousVolume = currentVolume;
 	}
+
 /*
 	// ************************** capture thread ******************************
 
@@ -20,17 +20,30 @@ import java.util.ResourceBundle;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
 import javax.swing.JPanel;
-
-public class AudioMonitor extends JPanel
+import javax.swing.Timer;
+
+/*
+ * Shows volume, spectrum and detected note of the audio input.
+ * The analysis thread only publishes into a SpectrumSnapshot: this panel pulls it
+ * on the Swing thread at most FRAME_RATE times per second, so drawing never slows down detection.
+ */
+public class AudioMonitor extends JPanel implements ActionListener
 {
+	public static final int FRAME_RATE = 30;
+
 	ResourceBundle appBundle;
 
-	double[] inputFFT;
-	int volume = 0;
-	int[] spectrumBars = null;
+	SpectrumSnapshot snapshot = new SpectrumSnapshot();
+	SpectrumSnapshot.Frame frame = null; // last pulled frame
+	Timer refreshTimer;
+	int shownPitch = 0;
+	int shownCents = 0;
 	String currentNote = "";
+	String currentTuning = "";
 	Piano piano;
 	
 	private static final long serialVersionUID = -3780914781525599762L;
@@ -39,36 +52,39 @@ public class AudioMonitor extends JPanel
 	{
 		appBundle = b;
 
-		spectrumBars = new int[16];	
 		piano = new Piano(73);
 		this.setFont(new Font("Arial", Font.BOLD, 40));
+		refreshTimer = new Timer(1000 / FRAME_RATE, this);
+		refreshTimer.setCoalesce(true);
 	}
 
-	public void showVolume(int vol)
+	// where the analysis thread publishes the data to show
+	public SpectrumSnapshot getSnapshot()
 	{
-		volume = vol;
+		return snapshot;
 	}
 
-	public void showSpectrum(double[] spec)
+	// poll only while the panel is on screen
+	public void addNotify()
 	{
-		long[][] spectrumSums = new long[2][16];
-		inputFFT = spec;
-		for (int i = 0; i < 16; i++)
-			spectrumBars[i] = 0;
-		for (int i = 0; i < inputFFT.length; i++)
-		{
-	    	double value = Math.log10(inputFFT[i]);
-	    	double frequency = (8000 * i) / inputFFT.length;
-	    	if (value <= 1)
-	    		continue;
-	    	if (frequency > 2000)
-	    		break;
-	    	int specIdx = (int)(frequency / 125) - 1;
-	    	if (specIdx < 0) specIdx = 0;
-	    	spectrumSums[0][specIdx] += (long)value;
-	    	spectrumSums[1][specIdx]++;
-	    	spectrumBars[specIdx] = (int)(spectrumSums[0][specIdx] / spectrumSums[1][specIdx]);
-		}
+		super.addNotify();
+		refreshTimer.start();
+	}
+
+	public void removeNotify()
+	{
+		refreshTimer.stop();
+		super.removeNotify();
+	}
+
+	public void actionPerformed(ActionEvent e)
+	{
+		if (snapshot.isFresh() == false)
+			return;
+		frame = snapshot.pull();
+		int c = (int)Math.round(frame.cents);
+		if (frame.pitch != shownPitch || c != shownCents)
+			showPitch(frame.pitch, c);
 		repaint();
 	}
 
@@ -89,14 +105,22 @@ public class AudioMonitor extends JPanel
 		return noteInfo;
 	}
 
-	public void showPitch(int p)
+	/*
+	 * Shows the note name of pitch p and how far (in cents) the played
+	 * frequency is from it. p = 0 clears the display
+	 */
+	private void showPitch(int p, int c)
 	{
 		//System.out.println("[audioMon] got pitch " + p);
-		if (p == 23)
+		shownPitch = p;
+		shownCents = c;
+		if (p <= 0)
 		{
 			currentNote = "";
+			currentTuning = "";
 			return;
 		}
+		currentTuning = (c > 0 ? "+" : "") + c;
 		int noteIdx = piano.getNoteIndexFromPitch(p);
 		int octave = piano.getOctaveFromPitch(p);
 		int alt = 0;
@@ -117,22 +141,31 @@ public class AudioMonitor extends JPanel
 		g.setColor(this.getBackground());
 		g.fillRect(0, 0, getWidth(), getHeight());
 		
-		int volHeight = volume * (getHeight() / 127);
-		g.setColor(Color.blue);
-		g.fillRect(0, getHeight() - volHeight, 10, volHeight);
-		
-		g.setColor(Color.gray);
-		if (spectrumBars != null)
+		if (frame != null)
 		{
+			int volHeight = frame.volume * getHeight() / 127;
+			g.setColor(Color.blue);
+			g.fillRect(0, getHeight() - volHeight, 10, volHeight);
+			
+			g.setColor(Color.gray);
 			int xPos = 20;
-			for (int i = 0; i < spectrumBars.length; i++)
+			for (int i = 0; i < SpectrumSnapshot.BANDS; i++)
 			{
-				g.drawRect(xPos, getHeight() - spectrumBars[i], 15, spectrumBars[i] - 1);
+				int barHeight = frame.bands[i] * getHeight() / SpectrumSnapshot.LEVELS;
+				if (barHeight > 0)
+					g.drawRect(xPos, getHeight() - barHeight, 15, barHeight - 1);
 				xPos += 15;
 			}
 		}
 		g.setColor(Color.black);
 		g.drawString(currentNote, 280, 90);
+		if (currentTuning.length() > 0)
+		{
+			Font noteFont = g.getFont();
+			g.setFont(noteFont.deriveFont(Font.PLAIN, 16f));
+			g.drawString(currentTuning, 280, 115);
+			g.setFont(noteFont);
+		}
 	}
 }
 
@@ -0,0 +1,133 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Lock-free single producer / single consumer byte ring buffer.
+ * The producer is the PortAudio callback, which must never block: when there
+ * is not enough room for a whole buffer, the buffer is dropped and counted as an overrun.
+ * The consumer is a background thread, such as the WavRecorder writer, which waits
+ * when the buffer is empty. The analysis path uses SampleRingBuffer instead, which
+ * holds decoded samples.
+ * Exactly one thread may call write() and exactly one thread may call read().
+ */
+public class AudioRingBuffer
+{
+	private final byte[] data;
+	private final int mask;
+
+	// positions grow forever. Index in data is (pos & mask)
+	private final AtomicLong writePos = new AtomicLong(0);
+	private final AtomicLong readPos = new AtomicLong(0);
+
+	// only the producer updates it, so volatile is enough
+	private volatile long overruns = 0;
+
+	public AudioRingBuffer(int minCapacity)
+	{
+		data = new byte[ConcurrencyUtils.nextPow2(minCapacity)];
+		mask = data.length - 1;
+	}
+
+	public int capacity()
+	{
+		return data.length;
+	}
+
+	// number of bytes ready to be read
+	public int available()
+	{
+		return (int)(writePos.get() - readPos.get());
+	}
+
+	/*
+	 * Producer side. Copies all the remaining bytes of src, or nothing at all
+	 */
+	public boolean write(ByteBuffer src)
+	{
+		int len = src.remaining();
+		long wPos = writePos.get();
+		if (len > data.length - (int)(wPos - readPos.get()))
+		{
+			overruns++;
+			return false;
+		}
+		int idx = (int)(wPos & mask);
+		int firstChunk = Math.min(len, data.length - idx);
+		src.get(data, idx, firstChunk);
+		if (firstChunk < len)
+			src.get(data, 0, len - firstChunk);
+		writePos.lazySet(wPos + len);
+		return true;
+	}
+
+	/*
+	 * Consumer side. Fills dst with len bytes, or leaves it untouched
+	 * if less than len bytes are available
+	 */
+	public boolean read(byte[] dst, int off, int len)
+	{
+		long rPos = readPos.get();
+		if ((int)(writePos.get() - rPos) < len)
+			return false;
+		int idx = (int)(rPos & mask);
+		int firstChunk = Math.min(len, data.length - idx);
+		System.arraycopy(data, idx, dst, off, firstChunk);
+		if (firstChunk < len)
+			System.arraycopy(data, 0, dst, off + firstChunk, len - firstChunk);
+		readPos.lazySet(rPos + len);
+		return true;
+	}
+
+	/*
+	 * Consumer side. Copies up to maxLen bytes into dst and returns how many were copied.
+	 * Meant for consumers that batch whatever is there
+	 */
+	public int readAvailable(byte[] dst, int off, int maxLen)
+	{
+		long rPos = readPos.get();
+		int len = Math.min(maxLen, (int)(writePos.get() - rPos));
+		if (len <= 0)
+			return 0;
+		int idx = (int)(rPos & mask);
+		int firstChunk = Math.min(len, data.length - idx);
+		System.arraycopy(data, idx, dst, off, firstChunk);
+		if (firstChunk < len)
+			System.arraycopy(data, 0, dst, off + firstChunk, len - firstChunk);
+		readPos.lazySet(rPos + len);
+		return len;
+	}
+
+	// number of producer buffers dropped because the consumer was too slow
+	public long getOverruns()
+	{
+		return overruns;
+	}
+
+	/*
+	 * Discards pending data and zeroes the counters.
+	 * Only safe when neither side is running
+	 */
+	public void reset()
+	{
+		readPos.set(writePos.get());
+		overruns = 0;
+	}
+}
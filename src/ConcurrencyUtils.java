@@ -32,37 +32,69 @@
  *
  * ***** END LICENSE BLOCK ***** */
 
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Concurrency utilities.
+ * <br>
+ * <br>
+ * FFT sub-tasks run on a bounded pool of at most {@link #getNumberOfThreads()}
+ * daemon workers with a priority lower than the audio threads. Idle workers
+ * exit after a while. When the queue is full the task runs in the submitting
+ * thread instead of spawning new threads. By default one processor is left to
+ * the audio thread. Threads marked with {@link #setRealtimeThread(boolean)}
+ * never hand work to the pool: their transforms run inline with predictable
+ * latency.
  * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  */
 public class ConcurrencyUtils {
-    /**
-     * Thread pool.
-     */
-    private static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
+    private static final int QUEUE_SIZE = 64;
+
+    private static final int IDLE_SECONDS = 30;
+
+    private static final ThreadLocal<Boolean> REALTIME = new ThreadLocal<Boolean>() {
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
 
-    private static int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
+    // volatile: calibrate() and the setters may change them while other threads run transforms
+    private static volatile int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
 
-    private static int THREADS_BEGIN_N_1D_FFT_4THREADS = 65536;
+    private static volatile int THREADS_BEGIN_N_1D_FFT_4THREADS = 65536;
 
-    private static int THREADS_BEGIN_N_2D = 65536;
+    private static volatile int THREADS_BEGIN_N_2D = 65536;
 
-    private static int THREADS_BEGIN_N_3D = 65536;
+    private static volatile int THREADS_BEGIN_N_3D = 65536;
 
-    private static int NTHREADS = prevPow2(getNumberOfProcessors());
+    private static volatile int NTHREADS = prevPow2(Math.max(1, getNumberOfProcessors() - 1));
+
+    /**
+     * Thread pool.
+     */
+    private static final ThreadPoolExecutor THREAD_POOL = createPool();
 
     private ConcurrencyUtils() {
 
     }
 
+    private static ThreadPoolExecutor createPool() {
+        int size = NTHREADS;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, IDLE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new CustomThreadFactory(new CustomExceptionHandler()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     private static class CustomExceptionHandler implements Thread.UncaughtExceptionHandler {
         public void uncaughtException(Thread t, Throwable e) {
             e.printStackTrace();
@@ -81,6 +113,9 @@ public class ConcurrencyUtils {
 
         public Thread newThread(Runnable r) {
             Thread t = defaultFactory.newThread(r);
+            t.setName("FFT-worker-" + t.getName());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
             t.setUncaughtExceptionHandler(handler);
             return t;
         }
@@ -96,22 +131,115 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Returns the current number of threads.
+     * Returns the current number of threads. Always 1 on a real-time thread.
      * 
      * @return the current number of threads.
      */
     public static int getNumberOfThreads() {
+        if (REALTIME.get() == Boolean.TRUE)
+            return 1;
         return NTHREADS;
     }
 
     /**
      * Sets the number of threads. If n is not a power-of-two number, then the
      * number of threads is set to the closest power-of-two number less than n.
+     * The pool is resized accordingly.
      * 
      * @param n
      */
-    public static void setNumberOfThreads(int n) {
+    public static synchronized void setNumberOfThreads(int n) {
         NTHREADS = prevPow2(n);
+        if (NTHREADS > THREAD_POOL.getMaximumPoolSize()) {
+            THREAD_POOL.setMaximumPoolSize(NTHREADS);
+            THREAD_POOL.setCorePoolSize(NTHREADS);
+        } else {
+            THREAD_POOL.setCorePoolSize(NTHREADS);
+            THREAD_POOL.setMaximumPoolSize(NTHREADS);
+        }
+    }
+
+    /**
+     * Marks the calling thread as latency critical. Transforms started by a
+     * real-time thread are computed by that thread alone, whatever their size.
+     * 
+     * @param realtime
+     */
+    public static void setRealtimeThread(boolean realtime) {
+        REALTIME.set(Boolean.valueOf(realtime));
+    }
+
+    /**
+     * Tells if the calling thread has been marked as real-time.
+     * 
+     * @return true if the calling thread never uses the pool
+     */
+    public static boolean isRealtimeThread() {
+        return REALTIME.get() == Boolean.TRUE;
+    }
+
+    /**
+     * Measures at which sizes two and four threads start to beat a single one
+     * on this machine and sets the 1D FFT thresholds accordingly. Takes a few
+     * hundred milliseconds. It should run at startup, before transforms are in
+     * use, because the thresholds are changed while measuring; concurrent
+     * transforms stay correct but may be split differently. The measured plans
+     * are built outside the {@link DoubleFFT_1D#forSize(int)} cache, so they
+     * are garbage once calibration is over.
+     * 
+     * @return the time spent, in milliseconds
+     */
+    public static synchronized long calibrate() {
+        long start = System.currentTimeMillis();
+        if (NTHREADS < 2) {
+            THREADS_BEGIN_N_1D_FFT_2THREADS = Integer.MAX_VALUE;
+            THREADS_BEGIN_N_1D_FFT_4THREADS = Integer.MAX_VALUE;
+            return 0;
+        }
+        int begin2 = Integer.MAX_VALUE;
+        int begin4 = Integer.MAX_VALUE;
+        Random rnd = new Random(0);
+        for (int n = 2048; n <= 131072; n <<= 1) {
+            DoubleFFT_1D fft = new DoubleFFT_1D(n);
+            double[] data = new double[2 * n];
+            for (int i = 0; i < data.length; i++)
+                data[i] = rnd.nextDouble();
+
+            THREADS_BEGIN_N_1D_FFT_2THREADS = Integer.MAX_VALUE;
+            if (n == 2048)
+                timeTransform(fft, data); // let the JIT compile the transform first
+            long t1 = timeTransform(fft, data);
+            THREADS_BEGIN_N_1D_FFT_2THREADS = 512;
+            THREADS_BEGIN_N_1D_FFT_4THREADS = Integer.MAX_VALUE;
+            long t2 = timeTransform(fft, data);
+            long t4 = Long.MAX_VALUE;
+            if (NTHREADS >= 4) {
+                THREADS_BEGIN_N_1D_FFT_4THREADS = 512;
+                t4 = timeTransform(fft, data);
+            }
+            // require a clear gain, thread hand-off has a cost the average hides
+            if (begin2 == Integer.MAX_VALUE && t2 < t1 * 0.8)
+                begin2 = n;
+            if (begin4 == Integer.MAX_VALUE && t4 < Math.min(t1, t2) * 0.8)
+                begin4 = n;
+        }
+        // transforms are split when n is strictly greater than the threshold
+        THREADS_BEGIN_N_1D_FFT_2THREADS = begin2 == Integer.MAX_VALUE ? begin2 : Math.max(512, begin2 / 2);
+        THREADS_BEGIN_N_1D_FFT_4THREADS = begin4 == Integer.MAX_VALUE ? begin4 : Math.max(512, begin4 / 2);
+        return System.currentTimeMillis() - start;
+    }
+
+    // best time of a few runs, in nanoseconds
+    private static long timeTransform(DoubleFFT_1D fft, double[] data) {
+        int reps = Math.max(2, (1 << 19) / data.length);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long t = System.nanoTime();
+            for (int i = 0; i < reps; i++)
+                fft.complexForward(data);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best;
     }
 
     /**
@@ -32,6 +32,9 @@
  *
  * ***** END LICENSE BLOCK ***** */
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 /**
@@ -43,6 +46,16 @@ import java.util.concurrent.Future;
  * This code is derived from General Purpose FFT Package written by Takuya Ooura
  * (http://www.kurims.kyoto-u.ac.jp/~ooura/fft.html) and from JFFTPack written
  * by Baoshe Zhang (http://jfftpack.sourceforge.net/)
+ * <br>
+ * <br>
+ * Work buffers are allocated once by the constructor and reused by every
+ * transform, so a single instance must not be used by more than one thread at
+ * the same time.
+ * <br>
+ * <br>
+ * Twiddle tables never change after construction. {@link #forSize(int)} keeps
+ * them in a small LRU cache, so every instance of a given size shares
+ * the same tables and only owns its scratch space.
  * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  * 
@@ -75,8 +88,28 @@ public class DoubleFFT_1D {
 
     private Plans plan;
 
+    private double[] ak;
+
+    private double[] ch;
+
+    private double[] rtmp;
+
+    private final int[] nac = new int[1];
+
     private static final int[] factors = { 4, 2, 3, 5 };
 
+    /** maximum number of sizes whose twiddle tables are kept by forSize() */
+    public static final int PLAN_CACHE_SIZE = 16;
+
+    // least recently used sizes are dropped first. Instances already created keep their tables
+    private static final Map<Integer, DoubleFFT_1D> planCache = new LinkedHashMap<Integer, DoubleFFT_1D>(PLAN_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<Integer, DoubleFFT_1D> eldest) {
+            return size() > PLAN_CACHE_SIZE;
+        }
+    };
+
     private static final double PI = 3.14159265358979311599796346854418516;
 
     private static final double TWO_PI = 6.28318530717958623199592693708837032;
@@ -99,6 +132,8 @@ public class DoubleFFT_1D {
                 nBluestein = ConcurrencyUtils.nextPow2(n * 2 - 1);
                 bk1 = new double[2 * nBluestein];
                 bk2 = new double[2 * nBluestein];
+                ak = new double[2 * nBluestein];
+                rtmp = new double[2 * n];
                 this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(nBluestein + 0.5) / Math.log(2)) / 2))];
                 this.w = new double[nBluestein];
                 int twon = 2 * nBluestein;
@@ -117,6 +152,8 @@ public class DoubleFFT_1D {
                 plan = Plans.MIXED_RADIX;
                 wtable = new double[4 * n + 15];
                 wtable_r = new double[2 * n + 15];
+                ch = new double[2 * n];
+                rtmp = new double[2 * n];
                 cffti();
                 rffti();
             }
@@ -138,6 +175,63 @@ public class DoubleFFT_1D {
         }
     }
 
+    /**
+     * Returns a new instance of DoubleFFT_1D sharing the twiddle tables of every
+     * other instance of the same size obtained from this method. Tables are
+     * computed only the first time a size is requested (or after it was
+     * evicted from the cache). This method is thread-safe; the returned
+     * instance, like any other, must be used by one thread at a time.
+     * 
+     * @param n
+     *            size of data
+     * @return new instance with its own work buffers
+     */
+    public static DoubleFFT_1D forSize(int n) {
+        DoubleFFT_1D prototype;
+        synchronized (planCache) {
+            prototype = planCache.get(n);
+        }
+        if (prototype == null) {
+            // tables are computed outside the lock. If two threads race, the first one wins
+            DoubleFFT_1D created = new DoubleFFT_1D(n);
+            created.ak = null;
+            created.ch = null;
+            created.rtmp = null;
+            synchronized (planCache) {
+                prototype = planCache.get(n);
+                if (prototype == null) {
+                    planCache.put(n, created);
+                    prototype = created;
+                }
+            }
+        }
+        return new DoubleFFT_1D(prototype);
+    }
+
+    /*
+     * Shares the read-only tables of prototype and allocates new work buffers
+     */
+    private DoubleFFT_1D(DoubleFFT_1D prototype) {
+        n = prototype.n;
+        nBluestein = prototype.nBluestein;
+        plan = prototype.plan;
+        ip = prototype.ip;
+        w = prototype.w;
+        nw = prototype.nw;
+        nc = prototype.nc;
+        wtable = prototype.wtable;
+        wtable_r = prototype.wtable_r;
+        bk1 = prototype.bk1;
+        bk2 = prototype.bk2;
+        if (plan == Plans.BLUESTEIN) {
+            ak = new double[2 * nBluestein];
+            rtmp = new double[2 * n];
+        } else if (plan == Plans.MIXED_RADIX) {
+            ch = new double[2 * n];
+            rtmp = new double[2 * n];
+        }
+    }
+
     /**
      * Computes 1D forward DFT of complex data leaving the result in
      * <code>a</code>. Complex number is stored as two double values in
@@ -190,6 +284,104 @@ public class DoubleFFT_1D {
         }
     }
 
+    /**
+     * Computes 1D forward DFT of real data leaving the result in <code>a</code>
+     * . The physical layout of the output data is as follows:<br>
+     * 
+     * if n is even then
+     * 
+     * <pre>
+     * a[2*k] = Re[k], 0&lt;=k&lt;n/2
+     * a[2*k+1] = Im[k], 0&lt;k&lt;n/2
+     * a[1] = Re[n/2]
+     * </pre>
+     * 
+     * if n is odd then
+     * 
+     * <pre>
+     * a[2*k] = Re[k], 0&lt;=k&lt;(n+1)/2
+     * a[2*k+1] = Im[k], 0&lt;k&lt;(n-1)/2
+     * a[1] = Im[(n-1)/2]
+     * </pre>
+     * 
+     * This method computes only half of the elements of the real transform.
+     * The other half satisfies the symmetry condition. Only the split-radix
+     * plan has a native real transform; the other plans go through
+     * <code>complexForward</code> on an internal work buffer.
+     * 
+     * @param a
+     *            data to transform
+     */
+    public void realForward(double[] a) {
+        realForward(a, 0);
+    }
+
+    /**
+     * Computes 1D forward DFT of real data leaving the result in <code>a</code>
+     * . The physical layout of the output data is the same as
+     * {@link #realForward(double[])}, shifted by <code>offa</code>.
+     * 
+     * @param a
+     *            data to transform
+     * @param offa
+     *            index of the first element in array <code>a</code>
+     */
+    public void realForward(double[] a, int offa) {
+        if (n == 1)
+            return;
+
+        switch (plan) {
+        case SPLIT_RADIX:
+            double xi;
+
+            if (n > 4) {
+                cftfsub(n, a, offa, ip, nw, w);
+                rftfsub(n, a, offa, nc, w, nw);
+            } else if (n == 4) {
+                cftxb020(a, offa);
+                a[offa + 3] = -a[offa + 3];
+            }
+            xi = a[offa] - a[offa + 1];
+            a[offa] += a[offa + 1];
+            a[offa + 1] = xi;
+            break;
+        case MIXED_RADIX:
+        case BLUESTEIN:
+            realForwardComplex(a, offa);
+            break;
+        }
+    }
+
+    /*
+     * Real forward transform for the plans without a dedicated real kernel:
+     * widen to complex in the work buffer, transform, then pack the half
+     * spectrum back into a.
+     */
+    private void realForwardComplex(double[] a, int offa) {
+        final double[] t = rtmp;
+        for (int k = 0; k < n; k++) {
+            t[2 * k] = a[offa + k];
+            t[2 * k + 1] = 0;
+        }
+        complexForward(t, 0);
+        a[offa] = t[0];
+        if (n % 2 == 0) {
+            a[offa + 1] = t[n];
+            for (int k = 1; k < n / 2; k++) {
+                a[offa + 2 * k] = t[2 * k];
+                a[offa + 2 * k + 1] = t[2 * k + 1];
+            }
+        } else {
+            int m = (n - 1) / 2;
+            for (int k = 1; k < m; k++) {
+                a[offa + 2 * k] = t[2 * k];
+                a[offa + 2 * k + 1] = t[2 * k + 1];
+            }
+            a[offa + 2 * m] = t[2 * m];
+            a[offa + 1] = t[2 * m + 1];
+        }
+    }
+
     private static int getReminder(int n, int factors[]) {
         int reminder = n;
 
@@ -584,7 +776,9 @@ public class DoubleFFT_1D {
     }
 
     private void bluestein_complex(final double[] a, final int offa, final int isign) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = this.ak;
+        // only the first n points are written below, the zero padding must be restored on each call
+        Arrays.fill(ak, 2 * n, 2 * nBluestein, 0);
         int nthreads = 1;
         int threads = ConcurrencyUtils.getNumberOfThreads();
         if ((threads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
@@ -757,11 +951,9 @@ public class DoubleFFT_1D {
         int idot;
         int l1, l2;
         int na, nf, ip, iw, ido, idl1;
-        int[] nac = new int[1];
         final int twon = 2 * n;
 
         int iw1, iw2;
-        double[] ch = new double[twon];
 
         iw1 = twon;
         iw2 = 4 * n;
@@ -1491,6 +1683,33 @@ public class DoubleFFT_1D {
         }
     }
 
+    private void rftfsub(int n, double[] a, int offa, int nc, double[] c, int startc) {
+        int k, kk, ks, m;
+        double wkr, wki, xr, xi, yr, yi;
+        int idx1, idx2;
+
+        m = n >> 1;
+        ks = 2 * nc / m;
+        kk = 0;
+        for (int j = 2; j < m; j += 2) {
+            k = n - j;
+            kk += ks;
+            wkr = 0.5 - c[startc + nc - kk];
+            wki = c[startc + kk];
+            idx1 = offa + j;
+            idx2 = offa + k;
+            xr = a[idx1] - a[idx2];
+            xi = a[idx1 + 1] + a[idx2 + 1];
+            yr = wkr * xr - wki * xi;
+            yi = wkr * xi + wki * xr;
+            a[idx1] -= yr;
+            a[idx1 + 1] = yi - a[idx1 + 1];
+            a[idx2] += yr;
+            a[idx2 + 1] = yi - a[idx2 + 1];
+        }
+        a[offa + m + 1] = -a[offa + m + 1];
+    }
+
     private void bitrv2(int n, int[] ip, double[] a, int offa) {
         int j1, k1, l, m, nh, nm;
         double xr, xi, yr, yi;
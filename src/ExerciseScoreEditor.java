@@ -26,14 +26,12 @@ import java.beans.PropertyChangeListener;
 import java.util.ResourceBundle;
 import java.util.Vector;
 
-import javax.sound.midi.MetaEventListener;
-import javax.sound.midi.MetaMessage;
-import javax.sound.midi.Sequencer;
 import javax.swing.ImageIcon;
 import javax.swing.JDialog;
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 
 public class ExerciseScoreEditor extends JDialog implements ActionListener, PropertyChangeListener
@@ -58,7 +56,6 @@ public class ExerciseScoreEditor extends JDialog implements ActionListener, Prop
 	private Staff scoreStaff;
 	private NotesPanel notesEditLayer;
 	private NoteGenerator exerciseNG;
-	private Sequencer playback;
 
 	RoundedButton removeNoteButton;
 	RoundedButton finishButton;
@@ -653,23 +650,26 @@ public class ExerciseScoreEditor extends JDialog implements ActionListener, Prop
 				Vector<Note> tmpSequence = new Vector<Note>(); 
 				tmpSequence.addAll(currExercise.notes);
 				tmpSequence.addAll(currExercise.notes2);
-				playback = appMidi.createPlayback(appPrefs, currExercise.speed, tmpSequence, timeDenominator / 4, true, 0);
-				playback.addMetaEventListener(new MetaEventListener() {
-			          public void meta(MetaMessage meta) 
+				appMidi.createPlayback(appPrefs, currExercise.speed, tmpSequence, timeDenominator / 4, true, 0);
+				playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/stop.png")).getImage());
+				appMidi.startTimelines(new RealTimeScheduler.Listener() {
+			          public void timelineEvent(int opcode, int arg, long time) 
 			          {
-			        	  byte[] metaData = meta.getData();
-			              String strData = new String(metaData);
-			        	  if ("end".equals(strData))
+			        	  if (opcode == TimelineEvent.END)
 			              {
 			        		appMidi.stopPlayback();
-			  				playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
-			  				playBtn.repaint();
-			  				isPlaying = false;
+			        		// on the clock thread: the button belongs to the Swing thread
+			        		SwingUtilities.invokeLater(new Runnable() {
+			        			public void run()
+			        			{
+			        				playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
+			        				playBtn.repaint();
+			        				isPlaying = false;
+			        			}
+			        		});
 			              }
 			          }
 					});
-				playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/stop.png")).getImage());
-				playback.start();
 				isPlaying = true;
 			}
 			else
@@ -28,9 +28,6 @@ import java.io.File;
 import java.util.ResourceBundle;
 import java.util.Vector;
 
-import javax.sound.midi.MetaEventListener;
-import javax.sound.midi.MetaMessage;
-import javax.sound.midi.Sequencer;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -38,6 +35,7 @@ import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
 import javax.swing.border.TitledBorder;
@@ -85,7 +83,6 @@ public class ExercisesPanel extends JPanel implements TreeSelectionListener, Act
     int timeDenominator = 4;
 
 	private boolean isPlaying = false;
-	private Sequencer playback;
 	
 	public ExercisesPanel(Font f, ResourceBundle b, Preferences p, MidiController mc, Dimension d)
 	{
@@ -355,23 +352,26 @@ public class ExercisesPanel extends JPanel implements TreeSelectionListener, Act
 				Vector<Note> tmpSequence = new Vector<Note>(); 
 				tmpSequence.addAll(selectedExercise.notes);
 				tmpSequence.addAll(selectedExercise.notes2);
-				playback = appMidi.createPlayback(appPrefs, selectedExercise.speed, tmpSequence, timeDenominator / 4, true, 0);
-				playback.addMetaEventListener(new MetaEventListener() {
-			          public void meta(MetaMessage meta) 
+				appMidi.createPlayback(appPrefs, selectedExercise.speed, tmpSequence, timeDenominator / 4, true, 0);
+				listenBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/stop.png")).getImage());
+				appMidi.startTimelines(new RealTimeScheduler.Listener() {
+			          public void timelineEvent(int opcode, int arg, long time) 
 			          {
-			        	  byte[] metaData = meta.getData();
-			              String strData = new String(metaData);
-			        	  if ("end".equals(strData))
+			        	  if (opcode == TimelineEvent.END)
 			              {
 			        		appMidi.stopPlayback();
-			  				listenBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
-			  				listenBtn.repaint();
-			  				isPlaying = false;
+			        		// on the clock thread: the button belongs to the Swing thread
+			        		SwingUtilities.invokeLater(new Runnable() {
+			        			public void run()
+			        			{
+			        				listenBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
+			        				listenBtn.repaint();
+			        				isPlaying = false;
+			        			}
+			        		});
 			              }
 			          }
 					});
-				listenBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/stop.png")).getImage());
-				playback.start();
 				isPlaying = true;
 			}
 			else
@@ -0,0 +1,67 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * The original detection strategy: the fundamental is the largest bin of the
+ * magnitude spectrum. Cheap, but it often locks on a harmonic and its
+ * resolution is limited to sampleRate / frameSize.
+ */
+public class FFTPeakEstimator implements PitchEstimator
+{
+	int frameSize = 0;
+	float sampleRate = 44100;
+	double peak = 0;
+	double confidence = 0;
+
+	public void configure(int size, float rate)
+	{
+		frameSize = size;
+		sampleRate = rate;
+	}
+
+	public double estimate(float[] samples, float[] magnitude)
+	{
+		double sum = 0;
+		int peakIdx = 0;
+		peak = 0;
+		for (int i = 0; i < magnitude.length; i++)
+		{
+			sum += magnitude[i];
+			if (magnitude[i] > peak)
+			{
+				peak = magnitude[i];
+				peakIdx = i;
+			}
+		}
+		// share of the spectrum energy held by the peak bin
+		confidence = sum > 0 ? peak / sum : 0;
+		return (sampleRate * peakIdx) / frameSize;
+	}
+
+	public double getConfidence()
+	{
+		return confidence;
+	}
+
+	// magnitude of the last peak found
+	public double getPeak()
+	{
+		return peak;
+	}
+}
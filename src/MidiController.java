@@ -19,20 +19,11 @@ along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
 import java.util.Vector;
 
 import javax.sound.midi.Instrument;
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MetaEventListener;
-import javax.sound.midi.MetaMessage;
 import javax.sound.midi.MidiChannel;
 import javax.sound.midi.MidiDevice;
-import javax.sound.midi.MidiEvent;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
-import javax.sound.midi.Receiver;
-import javax.sound.midi.Sequence;
-import javax.sound.midi.Sequencer;
 import javax.sound.midi.ShortMessage;
-import javax.sound.midi.Track;
-import javax.sound.midi.Transmitter;
 import javax.sound.midi.Soundbank;
 import javax.sound.midi.Synthesizer;
 
@@ -58,19 +49,26 @@ public class MidiController
     
     private static final int ppq=1000;
 
-    // variables to play metronome and an exercise. Fixed index are: 0 = playback, 1 = metronome
-    private Track[] tracks = { null, null };
-    private Sequence[] sequences = { null, null };
-    private Sequencer[] sequencers = { null, null };
+    // metronome and exercise timelines are played by the shared game clock,
+    // in the slots RealTimeScheduler.PLAYBACK and RealTimeScheduler.METRONOME
+    private RealTimeScheduler scheduler;
+    private RealTimeScheduler.Listener soundListener = new RealTimeScheduler.Listener() {
+    	public void timelineEvent(int opcode, int arg, long time)
+    	{
+    		playTimelineEvent(opcode, arg);
+    	}
+    };
     
     int errorCode = 0;
     private boolean useFluidsynth = false;
     int lastNote = -1;
 	
-	public MidiController(Preferences p)
+	public MidiController(Preferences p, RealTimeScheduler clock)
 	{
 		errorCode = 0;
 		appPrefs = p;
+		scheduler = clock;
+		scheduler.addListener(soundListener);
 		instrumentsList = new ArrayList<String>();
 		String outDevice = appPrefs.getProperty("outputDevice");
 		System.out.println("----------> Selected driver = " + outDevice);
@@ -82,10 +80,16 @@ public class MidiController
 	
 	public void close()
 	{
+		scheduler.stop(RealTimeScheduler.PLAYBACK);
+		scheduler.stop(RealTimeScheduler.METRONOME);
+		scheduler.removeListener(soundListener);
+
 		if (useFluidsynth == false)
 		{
 			if (inputDevice != null && inputDevice.isOpen())
 			   inputDevice.close();
+			if (midiSynth != null && midiSynth.isOpen())
+				midiSynth.close();
 		}
 		else
 		{
@@ -113,6 +117,8 @@ public class MidiController
 	   if (inputDevice != null && inputDevice.isOpen())
 		   inputDevice.close();
 
+	   // this is the only synthesizer of the application: open it and load the soundbank just once
+	   long startTime = System.nanoTime();
        try 
        {
            if (midiSynth == null) 
@@ -159,6 +165,7 @@ public class MidiController
 
            midiOutChannel = allMC[0];
            useFluidsynth = false;
+           System.out.println("[MidiController] synthesizer and soundbank loaded in " + ((System.nanoTime() - startTime) / 1000000) + " ms");
        }
        return true;
 	}
@@ -366,237 +373,130 @@ public class MidiController
 		 fluidSynth.send(0, ShortMessage.NOTE_OFF, pitch, volume);
 	 }
 	 
-	 private void fluidsynthAsyncMIDIevent(MetaMessage msg)
-	 {
-		byte[] metaData = msg.getData();
-        String strData = new String(metaData);
-       
-        //System.out.println("*FS* META message: text= " + strData);
-
-        if ("fsbOnLow".equals(strData))
-        	fluidSynth.send(9, ShortMessage.NOTE_ON, 77, 100);
-        else if ("fsbOnHi".equals(strData))
-        	fluidSynth.send(9, ShortMessage.NOTE_ON, 76, 100);
-        else if ("fsbOff".equals(strData))
-        	fluidSynth.send(9, ShortMessage.NOTE_OFF, 77, 0);
-        else if ("fsnOn".equals(strData.substring(0, 5)))
-        {
-        	lastNote = Integer.parseInt(strData.substring(5));
-        	fluidSynth.send(0, ShortMessage.NOTE_ON, lastNote, 100);
-        }
-        else if ("fsnOff".equals(strData.substring(0, 6)))
-        {
-        	fluidSynth.send(0, ShortMessage.NOTE_OFF, Integer.parseInt(strData.substring(6)), 0);
-        	lastNote = -1;
-        }
-	 }
-	 
-	 private void addMidiEvent(Track track, int type, byte[] data, long tick) 
+	 // sound events of the timelines, on the scheduler thread
+	 private void playTimelineEvent(int opcode, int arg)
 	 {
-        MetaMessage message=new MetaMessage();
-        try {
-            message.setMessage(type, data, data.length);
-            MidiEvent event=new MidiEvent(message, tick);
-            track.add(event);
-        }
-        catch (InvalidMidiDataException e) {
-            e.printStackTrace();
-        }
-	 }
+		if ((useFluidsynth == false && allMC == null) || (useFluidsynth == true && fluidSynth == null))
+			return;
 
-     private static MidiEvent createNoteOnEvent(int nKey, int velocity, long lTick) 
-     {
-    	 return createNoteEvent(ShortMessage.NOTE_ON, nKey, velocity, lTick);
+		switch (opcode)
+		{
+			case TimelineEvent.CLICK_ON:
+				if (useFluidsynth == false)
+					allMC[9].noteOn(arg, 90);
+				else
+					fluidSynth.send(9, ShortMessage.NOTE_ON, arg, 100);
+			break;
+			case TimelineEvent.CLICK_OFF:
+				if (useFluidsynth == false)
+					allMC[9].noteOff(arg, 0);
+				else
+					fluidSynth.send(9, ShortMessage.NOTE_OFF, arg, 0);
+			break;
+			case TimelineEvent.PLAY_NOTE_ON:
+				lastNote = arg;
+				if (useFluidsynth == false)
+					allMC[0].noteOn(arg, 90);
+				else
+					fluidSynth.send(0, ShortMessage.NOTE_ON, arg, 100);
+			break;
+			case TimelineEvent.PLAY_NOTE_OFF:
+				if (useFluidsynth == false)
+					allMC[0].noteOff(arg, 0);
+				else
+					fluidSynth.send(0, ShortMessage.NOTE_OFF, arg, 0);
+				lastNote = -1;
+			break;
+		}
 	 }
 
-	 private static MidiEvent createNoteOffEvent(int nKey, long lTick) 
+	 // time of a tick from the beginning of the game, in nanoseconds
+	 private static long tickToNanos(long tick, int BPM)
 	 {
-		 return createNoteEvent(ShortMessage.NOTE_OFF, nKey, 0, lTick);
+		 return tick * 60000000000L / ((long)BPM * ppq);
 	 }
 
-	 private static MidiEvent createNoteEvent(int nCommand, int nKey, int nVelocity, long lTick) 
+	 public RealTimeScheduler getScheduler()
 	 {
-		 ShortMessage message=new ShortMessage();
-	     try {
-	            message.setMessage(nCommand,
-	                0, // always on channel 1
-	                nKey,
-	                nVelocity);
-	     }
-	     catch (InvalidMidiDataException e) 
-	     {
-	            e.printStackTrace();
-	            System.exit(1);
-	     }
-	     return new MidiEvent(message, lTick);
+		 return scheduler;
 	 }
-	 
-	 private void createSequencer(int index)
-	 {
-		 if (sequencers[index] != null)
-			 sequencers[index].close();
-
-         try 
-         {
-        	 sequences[index] = new Sequence(Sequence.PPQ, ppq);
-         } 
-         catch (InvalidMidiDataException e) {
-            e.printStackTrace();
-            System.exit(1);
-         }
-
-		 tracks[index] = sequences[index].createTrack();
-		 
-         try 
-         {
-        	 sequencers[index] = MidiSystem.getSequencer();
-         }
-         catch (MidiUnavailableException e) {
-            e.printStackTrace();
-            System.exit(1);
-         }
-
-         try {
-        	 sequencers[index].open();
-         }
-         catch (MidiUnavailableException e) {
-             e.printStackTrace();
-             System.exit(1);
-         }
-
-         try {
-        	 sequencers[index].setSequence(sequences[index]);
-         }
-         catch (InvalidMidiDataException e) {
-             e.printStackTrace();
-             System.exit(1);
-         }
 
-         if (!(sequencers[index] instanceof Synthesizer)) 
-         {
-             try 
-             {
-                 Synthesizer synthesizer = MidiSystem.getSynthesizer();
-                 synthesizer.open();
-                 Receiver synthReceiver = synthesizer.getReceiver();
-                 Transmitter seqTransmitter = sequencers[index].getTransmitter();
-                 seqTransmitter.setReceiver(synthReceiver);
-                 //long latency = sm_synthesizer.getLatency()/1000;  
-                 //System.out.println("MIDI latency " + latency);
-             }
-             catch (MidiUnavailableException e) {
-                 e.printStackTrace();
-             }
-         }
+	 /*
+	  * Starts the timelines loaded by createMetronome() and createPlayback() together
+	  * on the game clock. listener receives their events until they are stopped.
+	  * Returns the System.nanoTime() of the beginning of the timelines
+	  */
+	 public long startTimelines(RealTimeScheduler.Listener listener)
+	 {
+		 return scheduler.start(listener);
 	 }
 
-	 public Sequencer createMetronome(Preferences p, int BPM, int measures, int timeSignNumerator, int timeDivision)
+	 public Timeline createMetronome(Preferences p, int BPM, int measures, int timeSignNumerator, int timeDivision)
 	 {
-		 // create metronome sequence, sequencer and track
-         createSequencer(1);
-         
-         Track metronomeTrack = tracks[1];
+         Timeline metronome = new Timeline();
          boolean accents = false;
          if (p.getProperty("clickAccents").equals("1"))
         	 accents = true;
 
-         try {
-             final int metaType = 0x01;
-             int beatsNumber;
-
-         	 //System.out.println("[createMetronome] timeSignNumerator = " + timeSignNumerator);
-             if (useFluidsynth == true)
-             	 fluidSynth.send(9, ShortMessage.PROGRAM_CHANGE, 0, 0);
-
-             String textd="gameOn"; // first note beat
-             addMidiEvent(metronomeTrack, metaType, textd.getBytes(), 0);
-             
-             String textdt="cursorOn"; //one beat before first note
-             addMidiEvent(metronomeTrack, metaType, textdt.getBytes(), (int)((timeSignNumerator/timeDivision)-1)*ppq);
-             
-             
-             if (Integer.parseInt(p.getProperty("metronome")) == 1)
-            	 beatsNumber = (timeSignNumerator * measures) + timeSignNumerator;
-             else 
-            	 beatsNumber = timeSignNumerator; //only few first to indicate pulse
-
-             for (int i = 0; i < beatsNumber; i++) 
-             {
-           		ShortMessage mess = new ShortMessage();
-        		ShortMessage mess2 = new ShortMessage();
-      		    int pitch = 77;
-      		    if (accents == true && i%(timeSignNumerator/timeDivision) == 0)
-      		    	pitch = 76;
-
-        		if (useFluidsynth == false)
-        		{
-        			mess.setMessage(ShortMessage.NOTE_ON, 9, pitch, 90);
-        			metronomeTrack.add(new MidiEvent(mess, i*ppq));
-        			mess2.setMessage(ShortMessage.NOTE_OFF, 9, pitch, 0);
-            		metronomeTrack.add(new MidiEvent(mess2, (i*ppq)+1));
-        		}
-        		else
-        		{
-        			String textb="fsbOnLow";
-        			if (pitch == 76)
-        				textb="fsbOnHi";
-     				addMidiEvent(metronomeTrack, metaType, textb.getBytes(), (int)i*ppq);
-        			textb="fsbOff";
-     				addMidiEvent(metronomeTrack, metaType, textb.getBytes(), (int)(i*ppq)+1);     				
-        		}
-
-        		if (i > ((timeSignNumerator / timeDivision) - 1)) 
-        		{
-         			//System.out.println("adding metronome beat : "+i);
-         			String textb="beat";
-         			addMidiEvent(metronomeTrack, metaType, textb.getBytes(), (int)i*ppq);
-        		}
-             }
-         }
-         catch (InvalidMidiDataException e) {
-             e.printStackTrace();
-             System.exit(1);
-         }
+         int beatsNumber;
 
-         sequencers[1].setTempoInBPM(BPM );
-         
+     	 //System.out.println("[createMetronome] timeSignNumerator = " + timeSignNumerator);
          if (useFluidsynth == true)
+         	 fluidSynth.send(9, ShortMessage.PROGRAM_CHANGE, 0, 0);
+
+         metronome.add(0, TimelineEvent.GAME_ON, 0); // first note beat
+         
+         //one beat before first note
+         metronome.add(tickToNanos((int)((timeSignNumerator/timeDivision)-1)*ppq, BPM), TimelineEvent.CURSOR_ON, 0);
+         
+         if (Integer.parseInt(p.getProperty("metronome")) == 1)
+        	 beatsNumber = (timeSignNumerator * measures) + timeSignNumerator;
+         else 
+        	 beatsNumber = timeSignNumerator; //only few first to indicate pulse
+
+         for (int i = 0; i < beatsNumber; i++) 
          {
-           sequencers[1].addMetaEventListener(new MetaEventListener() {
-             public void meta(MetaMessage meta) 
-             {
-             	fluidsynthAsyncMIDIevent(meta);
-             }
- 		   });
+  		    int pitch = 77;
+  		    if (accents == true && i%(timeSignNumerator/timeDivision) == 0)
+  		    	pitch = 76;
+
+  		    metronome.add(tickToNanos(i*ppq, BPM), TimelineEvent.CLICK_ON, pitch);
+  		    metronome.add(tickToNanos((i*ppq)+1, BPM), TimelineEvent.CLICK_OFF, pitch);
+
+    		if (i > ((timeSignNumerator / timeDivision) - 1)) 
+    		{
+     			//System.out.println("adding metronome beat : "+i);
+     			metronome.add(tickToNanos(i*ppq, BPM), TimelineEvent.BEAT, 0);
+    		}
          }
+         metronome.compile();
+         scheduler.load(RealTimeScheduler.METRONOME, metronome);
          
-         return sequencers[1];
+         return metronome;
 	 }
 	 
 	 public void stopMetronome()
 	 {
-		 sequencers[1].stop();
-		 sequencers[1].close();
+		 scheduler.stop(RealTimeScheduler.METRONOME);
+		 if (useFluidsynth == false && allMC != null)
+			 allMC[9].allNotesOff();
 	 }
 	 
-	 public Sequencer createPlayback(Preferences p, int BPM, Vector<Note> notes, int timeDivision, boolean playOnly, int timeOffset)
+	 public Timeline createPlayback(Preferences p, int BPM, Vector<Note> notes, int timeDivision, boolean playOnly, int timeOffset)
 	 {
-		 final int metaType = 0x01;
+		 Timeline playback = new Timeline(notes.size() * 4 + 1);
 		 int tick = 0;
 		 int endtick = 0;
-		 createSequencer(0);
+		 int[] rowIndex = { 0, 0 }; // index of the next note of each row
+		 int tempo = BPM/timeDivision;
 
 		 int midiSound = Integer.parseInt(appPrefs.getProperty("instrument"));
 		 if (midiSound == -1) midiSound = 0;
 
 		 if (useFluidsynth == false)
 		 {
-			 ShortMessage mess = new ShortMessage();
-			 try {
-				 mess.setMessage(ShortMessage.PROGRAM_CHANGE, 0, midiSound, 0);
-			 }
-			 catch (InvalidMidiDataException e) { }
-			 tracks[0].add(new MidiEvent(mess, 0));
+			 if (allMC != null)
+				 allMC[0].programChange(midiSound);
 		 }
 		 else
 			 fluidSynth.send(0, ShortMessage.PROGRAM_CHANGE, midiSound, 0);
@@ -610,62 +510,33 @@ public class MidiController
 			 tick = (int)((cNote.timestamp + timeOffset) * ppq);
 			 
 			 if (playOnly == true && cNote.type != 5) // do not play silence !
-			 {
-				 if (useFluidsynth == false)
-					 tracks[0].add(createNoteOnEvent(cNote.pitch, 90, tick));
-				 else
-				 {
-					 String textb = "fsnOn" + cNote.pitch;
-					 addMidiEvent(tracks[0], metaType, textb.getBytes(), tick);
-				 }
-			 }
-
-			 String textb = "nOn";
-			 if (cNote.secondRow == true)
-				 textb = "n2On";
-			 addMidiEvent(tracks[0], metaType, textb.getBytes(), tick);
+				 playback.add(tickToNanos(tick, tempo), TimelineEvent.PLAY_NOTE_ON, cNote.pitch);
+
+			 int row = cNote.secondRow == true ? 1 : 0;
+			 int index = rowIndex[row]++;
+			 playback.add(tickToNanos(tick, tempo), row == 0 ? TimelineEvent.NOTE_ON : TimelineEvent.NOTE2_ON, index);
 			 tick+=(int)((cNote.duration)*ppq);
 			 
 			 if (playOnly == true && cNote.type != 5) // do not play silence !
-			 {
-				 if (useFluidsynth == false)
-					 tracks[0].add(createNoteOffEvent(cNote.pitch, tick));
-				 else
-				 {
-					 textb = "fsnOff" + cNote.pitch;
-		  			 addMidiEvent(tracks[0], metaType, textb.getBytes(), tick);
-				 }
-			 }
-
-			 textb = "nOff";
-			 if (cNote.secondRow == true)
-				 textb = "n2Off";
-  			 addMidiEvent(tracks[0], metaType, textb.getBytes(), tick);
+				 playback.add(tickToNanos(tick, tempo), TimelineEvent.PLAY_NOTE_OFF, cNote.pitch);
+
+			 playback.add(tickToNanos(tick, tempo), row == 0 ? TimelineEvent.NOTE_OFF : TimelineEvent.NOTE2_OFF, index);
   			 if (tick > endtick)
   				endtick = tick;
 		 }
-		 String textend = "end";
-		 addMidiEvent(tracks[0], metaType, textend.getBytes(), endtick);
-
-		 sequencers[0].setTempoInBPM(BPM/timeDivision);
-
-		 if (useFluidsynth == true)
-         {
-           sequencers[0].addMetaEventListener(new MetaEventListener() {
-             public void meta(MetaMessage meta) 
-             {
-            	 fluidsynthAsyncMIDIevent(meta);
-             }
- 		   });
-         }
+		 playback.add(tickToNanos(endtick, tempo), TimelineEvent.END, 0);
+		 playback.compile();
+		 scheduler.load(RealTimeScheduler.PLAYBACK, playback);
 
-		 return sequencers[0];
+		 return playback;
 	 }
 
 	 public void stopPlayback()
 	 {
-		 sequencers[0].stop();
-		 sequencers[0].close();
+		 scheduler.stop(RealTimeScheduler.PLAYBACK);
+		 // silence whatever the playback left on
+		 if (useFluidsynth == false && allMC != null)
+			 allMC[0].allNotesOff();
 		 // stop last note in case there's one suspended...
 		 if (lastNote != -1 && useFluidsynth == true)
 			 fluidSynth.send(0, ShortMessage.NOTE_OFF, lastNote, 0);
@@ -0,0 +1,224 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Delivers the notes played on the MIDI keyboard (or detected from audio) to the game on screen.
+ *
+ * Sources call post() from their own threads (MIDI driver, audio analysis): the note is
+ * written into a preallocated ring and the call returns at once. A single dispatcher thread
+ * drains the ring and hands each note to the one active consumer, which the main window
+ * switches when a game panel is opened or closed. Nothing is allocated or logged per note.
+ *
+ * The ring is a bounded multi producer / single consumer queue: each slot has a sequence number
+ * that tells producers and consumer whose turn it is, so no lock is ever taken.
+ * When the ring is full, or no consumer is active, notes are dropped and counted.
+ *
+ * Every note carries the System.nanoTime() of its arrival (or of its capture, for audio).
+ * The time from there to the end of the consumer call, when the game has judged the note,
+ * is the end to end delay, kept in a histogram of power of two microseconds buckets.
+ */
+public class MidiEventBus
+{
+	public interface Consumer
+	{
+		// called on the dispatcher thread. timestamp is the System.nanoTime() of the note at its source
+		public void noteEvent(int pitch, int velocity, long timestamp);
+	}
+
+	public static final int CAPACITY = 256; // power of two
+	public static final int BUCKETS = 24;
+
+	private final int mask = CAPACITY - 1;
+	private final AtomicLongArray sequence = new AtomicLongArray(CAPACITY);
+	private final int[] pitches = new int[CAPACITY];
+	private final int[] velocities = new int[CAPACITY];
+	private final long[] timestamps = new long[CAPACITY];
+	private final AtomicLong tail = new AtomicLong(0); // next slot to claim, shared by the producers
+	private long head = 0; // next slot to read, dispatcher only
+
+	private volatile Consumer consumer = null;
+	private volatile boolean waiting = false;
+	private volatile boolean running = true;
+	private final Thread dispatcher;
+
+	// end to end delays. Written by the dispatcher only
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	private volatile long dispatched = 0;
+	private volatile long totalDelay = 0;
+	private volatile long maxDelay = 0;
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	public MidiEventBus()
+	{
+		for (int i = 0; i < CAPACITY; i++)
+			sequence.set(i, i);
+		dispatcher = new Thread("MidiEventBus")
+		{
+			public void run()
+			{
+				dispatchLoop();
+			}
+		};
+		dispatcher.setDaemon(true);
+		dispatcher.setPriority(Thread.MAX_PRIORITY - 1);
+		dispatcher.start();
+	}
+
+	/*
+	 * Makes c the only receiver of the notes, or stops the delivery if c is null.
+	 * Notes already queued go to the new consumer
+	 */
+	public void setConsumer(Consumer c)
+	{
+		consumer = c;
+	}
+
+	/*
+	 * Queues a note from any thread. velocity 0 means note off.
+	 * Returns false if the ring is full and the note was dropped
+	 */
+	public boolean post(int pitch, int velocity, long timestamp)
+	{
+		long pos = tail.get();
+		int idx;
+		while (true)
+		{
+			idx = (int)(pos & mask);
+			long diff = sequence.get(idx) - pos;
+			if (diff == 0)
+			{
+				if (tail.compareAndSet(pos, pos + 1))
+					break;
+				pos = tail.get();
+			}
+			else if (diff < 0)
+			{
+				dropped.incrementAndGet();
+				return false;
+			}
+			else
+				pos = tail.get();
+		}
+		pitches[idx] = pitch;
+		velocities[idx] = velocity;
+		timestamps[idx] = timestamp;
+		sequence.set(idx, pos + 1); // publishes the slot to the dispatcher
+		if (waiting == true)
+			LockSupport.unpark(dispatcher);
+		return true;
+	}
+
+	private void dispatchLoop()
+	{
+		while (running == true)
+		{
+			int idx = (int)(head & mask);
+			if (sequence.get(idx) != head + 1)
+			{
+				// empty: check again after announcing the wait, so that a concurrent post() is not missed
+				waiting = true;
+				if (sequence.get(idx) != head + 1)
+					LockSupport.park(this);
+				waiting = false;
+				continue;
+			}
+			int pitch = pitches[idx];
+			int velocity = velocities[idx];
+			long timestamp = timestamps[idx];
+			sequence.lazySet(idx, head + CAPACITY); // frees the slot for the producers
+			head++;
+
+			Consumer c = consumer;
+			if (c == null)
+			{
+				dropped.incrementAndGet();
+				continue;
+			}
+			try {
+				c.noteEvent(pitch, velocity, timestamp);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			recordDelay(System.nanoTime() - timestamp);
+		}
+	}
+
+	private void recordDelay(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+		long micros = nanos / 1000;
+		int bucket = micros < 2 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+		histogram.lazySet(bucket, histogram.get(bucket) + 1);
+		totalDelay += nanos;
+		if (nanos > maxDelay)
+			maxDelay = nanos;
+		dispatched++;
+	}
+
+	// stops the dispatcher thread. Queued notes are discarded
+	public void close()
+	{
+		running = false;
+		LockSupport.unpark(dispatcher);
+	}
+
+	public long getDispatched()
+	{
+		return dispatched;
+	}
+
+	// notes lost because the ring was full or no consumer was active
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+
+	// mean end to end delay in microseconds
+	public double getMeanDelay()
+	{
+		long n = dispatched;
+		return n > 0 ? totalDelay / 1000.0 / n : 0;
+	}
+
+	public double getMaxDelay()
+	{
+		return maxDelay / 1000.0;
+	}
+
+	/*
+	 * Fills dst (BUCKETS values) with the delay histogram: bucket 0 counts delays
+	 * under 2 microseconds, bucket i those from 2^i to 2^(i+1) - 1
+	 */
+	public void getHistogram(long[] dst)
+	{
+		for (int i = 0; i < BUCKETS; i++)
+			dst[i] = histogram.get(i);
+	}
+
+	public String getDelayReport()
+	{
+		return "notes=" + getDispatched() + " dropped=" + getDropped() + 
+			   " meanDelayUs=" + Math.round(getMeanDelay()) + " maxDelayUs=" + Math.round(getMaxDelay());
+	}
+}
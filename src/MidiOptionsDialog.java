@@ -47,7 +47,7 @@ import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileFilter;
 
 import org.jpab.Device;
-import org.jpab.PortAudio;
+import org.jpab.DeviceRegistry;
 import org.jpab.PortAudioException;
 
 public class MidiOptionsDialog extends JDialog implements ActionListener
@@ -84,7 +84,7 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
     
     Vector <String>outDevList = new Vector<String>();
     Vector <Integer>portaudioOutputIndexes = new Vector<Integer>();
-    Vector <Integer>portaudioInputIndexes = new Vector<Integer>();
+    Vector <String>portaudioInputKeys = new Vector<String>(); // device registry keys, see org.jpab.DeviceRegistry
     AudioOptionDialog audioOptions;
     AudioInputController appAudioController;
 
@@ -383,7 +383,7 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 	{
 		String inputDev = appPrefs.getProperty("inputDevice");
 		int devIndex = -1;
-		if (inputDev != "-1")
+		if (inputDev != "-1" && inputDev.split(",")[0].equals("MIDI"))
 			devIndex = Integer.parseInt(inputDev.split(",")[1]);
 		
 		inputDeviceComboBox.removeAllItems();
@@ -430,27 +430,29 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 		int idx = 0;
 		String outputDevice = appPrefs.getProperty("outputDevice");
 		String inputDevice = appPrefs.getProperty("inputDevice");
-		int inputDevIndex = -1, outputDevIndex = -1;
+		int outputDevIndex = -1;
+		String inputDevKey = null;
 		if (outputDevice != "-1" && outputDevice.equals("Java") == false)
 			outputDevIndex = Integer.parseInt(outputDevice.split(",")[1]);
-		if (inputDevice != "-1")
-			inputDevIndex = Integer.parseInt(inputDevice.split(",")[1]);
+		if (inputDevice != "-1" && inputDevice.split(",")[0].equals("Audio"))
+			inputDevKey = inputDevice.split(",", 2)[1];
 		
 		outDevList.clear();
 		portaudioOutputIndexes.clear();
-		portaudioInputIndexes.clear();
+		portaudioInputKeys.clear();
 		fluidDevComboBox.removeAllItems();
 		if (audioInputRadio.isSelected() == true)
 			inputDeviceComboBox.removeAllItems();
 		
 		if (NativeUtils.isWindows()) 
 		{
-			// since we use only PortAudio on Windows, retrieve the list directly from PortAudio
+			// since we use only PortAudio on Windows, retrieve the list directly from PortAudio.
+			// Refreshing here picks up devices plugged since the last time the dialog was open
 			try {
-				PortAudio.initialize();
-				for (Device device : PortAudio.getDevices()) 
+				DeviceRegistry.refresh();
+				for (Device device : DeviceRegistry.getDevices()) 
 				{
-					String devName = device.getName() + " [" + device.getHostAPI().getType() + "]";
+					String devName = DeviceRegistry.getKey(device);
 					if (device.getMaxOutputChannels() >= 2 && fluidsynthRadio.isSelected() == true)
 					{
 						fluidDevComboBox.addItem(devName);
@@ -461,8 +463,9 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 					else if (device.getMaxInputChannels() > 0 &&  audioInputRadio.isSelected() == true)
 					{
 						inputDeviceComboBox.addItem(devName);
-						portaudioInputIndexes.add(idx);
-						if (inputDevIndex == idx)
+						portaudioInputKeys.add(devName);
+						// older preferences stored the PortAudio index instead of the key
+						if (devName.equals(inputDevKey) || String.valueOf(idx).equals(inputDevKey))
 							inputDeviceComboBox.setSelectedIndex(inputDeviceComboBox.getItemCount() - 1);
 					}
 					//System.out.println(device);
@@ -470,13 +473,12 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 					//System.out.println("Host API ID: " + device.getHostAPI().toString());
 					idx++;
 				}
-				PortAudio.terminate();
 			} catch (PortAudioException ex) {  }
 
 			if (outputDevIndex == -1 && fluidDevComboBox.getItemCount() > 0)
 				fluidDevComboBox.setSelectedIndex(0);
 
-			if (inputDevIndex == -1 && inputDeviceComboBox.getItemCount() > 0)
+			if (inputDeviceComboBox.getSelectedIndex() == -1 && inputDeviceComboBox.getItemCount() > 0)
 				inputDeviceComboBox.setSelectedIndex(0);
 		}
 		else
@@ -509,12 +511,12 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 		    */
 			String inDev = appPrefs.getProperty("inputDevice");
 			String outDev = appPrefs.getProperty("outputDevice");
-			int inputDevIdx = -1;
+			String inputDevId = "";
 			if (inDev != "-1")
-				inputDevIdx = Integer.parseInt(inDev.split(",")[1]);
+				inputDevId = inDev.split(",", 2)[1];
 			if (inDev == "-1" ||  
-				(midiInputRadio.isSelected() == true && inputDevIdx != inputDeviceComboBox.getSelectedIndex()) ||
-				(audioInputRadio.isSelected() == true && inputDevIdx != portaudioInputIndexes.get(inputDeviceComboBox.getSelectedIndex())))
+				(midiInputRadio.isSelected() == true && inputDevId.equals(String.valueOf(inputDeviceComboBox.getSelectedIndex())) == false) ||
+				(audioInputRadio.isSelected() == true && inputDevId.equals(portaudioInputKeys.get(inputDeviceComboBox.getSelectedIndex())) == false))
 	    			newMidiDev = true;
 			else if (inDev != "-1")
 			{
@@ -526,7 +528,7 @@ public class MidiOptionsDialog extends JDialog implements ActionListener
 	    	if (midiInputRadio.isSelected() == true)
 	    		appPrefs.setProperty("inputDevice", "MIDI," + String.valueOf(inputDeviceComboBox.getSelectedIndex()));
 	    	else
-	    		appPrefs.setProperty("inputDevice", "Audio," + String.valueOf(portaudioInputIndexes.get(inputDeviceComboBox.getSelectedIndex())));
+	    		appPrefs.setProperty("inputDevice", "Audio," + portaudioInputKeys.get(inputDeviceComboBox.getSelectedIndex()));
 
 	    	int outIdx = 0;
 	    	if (NativeUtils.isWindows())
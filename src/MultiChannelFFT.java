@@ -0,0 +1,158 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.concurrent.Future;
+
+/*
+ * Real forward transform of K equally sized channels in one call.
+ * Channels are stored one after the other in a single array (channel k starts at k * n),
+ * or can be taken from an interleaved array of K-sample frames, as delivered by a multi-channel device.
+ * Parallelism is across channels: every channel is transformed by a single thread with
+ * its own FloatFFT_1D, which pays off better than splitting a small transform.
+ * Real-time threads transform their channels one after the other: submitting to the pool
+ * allocates a Future per task, and waiting on workers of lower priority would let them
+ * hold up the analysis thread.
+ * Channel instances share their twiddle tables through FloatFFT_1D.forSize().
+ * Like FloatFFT_1D, an instance must be used by one thread at a time.
+ */
+public class MultiChannelFFT
+{
+	private final int n;
+	private final int channels;
+	private final FloatFFT_1D[] ffts;
+	private final float[] data; // channel blocks of n samples, packed half spectra after forward()
+	private final ChannelTask[] tasks;
+	private final Future<?>[] futures;
+
+	public MultiChannelFFT(int size, int numChannels)
+	{
+		if (numChannels < 1)
+			throw new IllegalArgumentException("numChannels must be greater than 0");
+		n = size;
+		channels = numChannels;
+		ffts = new FloatFFT_1D[channels];
+		tasks = new ChannelTask[channels];
+		for (int k = 0; k < channels; k++)
+		{
+			ffts[k] = FloatFFT_1D.forSize(n);
+			tasks[k] = new ChannelTask(k);
+		}
+		data = new float[n * channels];
+		futures = new Future<?>[channels - 1];
+	}
+
+	public int getSize()
+	{
+		return n;
+	}
+
+	public int getChannels()
+	{
+		return channels;
+	}
+
+	// the working array. Channel k occupies [k * getSize(), (k + 1) * getSize())
+	public float[] getData()
+	{
+		return data;
+	}
+
+	/*
+	 * Copies frames of an interleaved array into the channel blocks and transforms them.
+	 * Sample i of channel k is read from src[srcOff + i * channels + k]
+	 */
+	public void forwardInterleaved(float[] src, int srcOff)
+	{
+		for (int k = 0; k < channels; k++)
+		{
+			int dst = k * n;
+			for (int i = 0, j = srcOff + k; i < n; i++, j += channels)
+				data[dst + i] = src[j];
+		}
+		forward();
+	}
+
+	/*
+	 * Transforms every channel block of getData() in place, with the layout of FloatFFT_1D.realForward()
+	 */
+	public void forward()
+	{
+		if (channels == 1 || ConcurrencyUtils.getNumberOfThreads() < 2)
+		{
+			for (int k = 0; k < channels; k++)
+				ffts[k].realForward(data, k * n);
+			return;
+		}
+		for (int k = 1; k < channels; k++)
+			futures[k - 1] = ConcurrencyUtils.submit(tasks[k]);
+		tasks[0].run();
+		ConcurrencyUtils.waitForCompletion(futures);
+	}
+
+	/*
+	 * Magnitudes of the first n/2 bins of a channel. DC is in dst[0], Nyquist is left out
+	 */
+	public void magnitude(int channel, float[] dst)
+	{
+		int off = channel * n;
+		dst[0] = Math.abs(data[off]);
+		for (int j = off + 2, i = 1; i < n / 2; j += 2, i++)
+			dst[i] = (float)Math.sqrt(data[j] * data[j] + data[j + 1] * data[j + 1]);
+	}
+
+	/*
+	 * Average of the magnitudes of all the channels. Averaging instead of adding keeps
+	 * the full scale of a single channel. tmp must hold n/2 values
+	 */
+	public void summedMagnitude(float[] dst, float[] tmp)
+	{
+		magnitude(0, dst);
+		for (int k = 1; k < channels; k++)
+		{
+			magnitude(k, tmp);
+			for (int i = 0; i < n / 2; i++)
+				dst[i] += tmp[i];
+		}
+		if (channels > 1)
+		{
+			float scale = 1.0f / channels;
+			for (int i = 0; i < n / 2; i++)
+				dst[i] *= scale;
+		}
+	}
+
+	// transforms one channel on a pool worker, without splitting it further
+	private class ChannelTask implements Runnable
+	{
+		private final int channel;
+
+		ChannelTask(int k)
+		{
+			channel = k;
+		}
+
+		public void run()
+		{
+			boolean wasRealtime = ConcurrencyUtils.isRealtimeThread();
+			ConcurrencyUtils.setRealtimeThread(true);
+			ffts[channel].realForward(data, channel * n);
+			ConcurrencyUtils.setRealtimeThread(wasRealtime);
+		}
+	}
+}
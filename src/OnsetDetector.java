@@ -0,0 +1,321 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * Detects note starts and ends in the frames analyzed by PitchDetector.
+ *
+ * Onsets are found with the spectral flux: the sum of the magnitude increases of every bin
+ * between two consecutive frames. A frame is an onset when its flux is a local maximum and
+ * exceeds an adaptive threshold, a multiple of the median flux of the last HISTORY seconds, so
+ * that steady notes and background noise do not trigger it while repeated notes of the same
+ * pitch do. Peak picking needs the next frame, so an onset is reported one hop after its frame.
+ *
+ * The onset time is then refined inside the onset frame and the hop before it, at the steepest rise of the envelope
+ * of the time domain samples, with a resolution of SUB_BLOCK samples. Rises under MIN_RISE are
+ * noise, not notes. The velocity comes from the peak level after the onset.
+ * A note ends when its level falls RELEASE_RATIO below its attack, when it goes silent,
+ * or when the next onset or a stable change of pitch starts another note.
+ * All buffers are allocated in configure(), analyze() does not allocate.
+ */
+public class OnsetDetector
+{
+	public interface NoteListener
+	{
+		// times are in samples since the detector was reset, with sub hop resolution
+		public void noteOn(int pitch, int velocity, long sampleTime);
+		public void noteOff(int pitch, long sampleTime);
+	}
+
+	static final double HISTORY = 0.4; // seconds of flux averaged by the adaptive threshold
+	static final int MIN_HISTORY = 8; // frames, for a meaningful median with long hops
+	static final int MAX_HISTORY = 64;
+	static final int SUB_BLOCK = 32; // resolution of the onset time, in samples
+	static final int RISE_BLOCKS = 8; // sub blocks before the attack where its minimum is searched
+	static final double MIN_RISE = 3; // the attack must raise the level by about 10dB
+	static final double MIN_INTERVAL = 0.05; // seconds between two onsets
+	static final double RELEASE_RATIO = 0.125; // note off 18dB below the attack peak
+	static final double SILENCE = 0.003; // about -50dBFS
+	static final double MIN_FREQ = 50;
+	static final double MAX_FREQ = 5000;
+	static final int PITCH_WAIT = 2; // frames an onset waits for a valid pitch
+	static final int LEGATO_FRAMES = 2; // frames a new pitch must last to replace the note without an onset
+
+	int fftSize = 0;
+	int hopSize = 0;
+	float sampleRate = 44100;
+	int minBin = 1, maxBin = 0;
+	double fluxScale = 1; // normalizes the flux to full scale amplitudes
+	double thresholdRatio = 2;
+	double minFlux = 0.01;
+
+	float[] prevMagnitude = null;
+	float[] recent = null; // the candidate frame, preceded by one more hop of samples
+	long prevFrameTime = 0;
+	double[] envelope = null; // sub block peaks of recent
+	double[] fluxHistory = new double[MAX_HISTORY];
+	double[] sortedFlux = new double[MAX_HISTORY];
+	int historyFrames = MAX_HISTORY;
+	int fluxPos = 0;
+	int fluxCount = 0;
+	double candidateFlux = 0; // flux of the previous frame, waiting for the next one
+	double candidateThreshold = 0;
+	double olderFlux = 0; // flux of the frame before the candidate
+
+	long lastOnset = Long.MIN_VALUE / 2;
+	long pendingTime = -1; // onset still waiting for a pitch
+	int pendingVelocity = 0;
+	int pendingFrames = 0;
+	int activePitch = 0;
+	double attackLevel = 0;
+	int legatoPitch = 0;
+	int legatoCount = 0;
+
+	NoteListener listener = null;
+
+	public OnsetDetector()
+	{
+	}
+
+	public void setNoteListener(NoteListener l)
+	{
+		listener = l;
+	}
+
+	/*
+	 * Sensitivity from 0 to 100, like the audio options slider.
+	 * Higher values lower the threshold, so softer onsets are detected
+	 */
+	public void setSensitivity(int s)
+	{
+		s = Math.max(0, Math.min(100, s));
+		thresholdRatio = 1.25 + 3.0 * (100 - s) / 100;
+		minFlux = 0.002 + 0.02 * (100 - s) / 100;
+	}
+
+	public void configure(int size, int hop, float rate)
+	{
+		if (size != fftSize || hop != hopSize || prevMagnitude == null)
+		{
+			prevMagnitude = new float[size / 2];
+			recent = new float[size + hop];
+			envelope = new double[(size + hop) / SUB_BLOCK];
+		}
+		fftSize = size;
+		hopSize = hop;
+		sampleRate = rate;
+		double binWidth = rate / size;
+		minBin = Math.max(1, (int)(MIN_FREQ / binWidth));
+		maxBin = Math.min(size / 2, (int)(MAX_FREQ / binWidth) + 1);
+		fluxScale = 2.0 / size;
+		historyFrames = Math.max(MIN_HISTORY, Math.min(MAX_HISTORY, (int)Math.round(HISTORY * rate / hop)));
+		reset();
+	}
+
+	// forgets the previous frames. A sounding note is dropped without note off
+	public void reset()
+	{
+		for (int i = 0; i < prevMagnitude.length; i++)
+			prevMagnitude[i] = 0;
+		for (int i = 0; i < recent.length; i++)
+			recent[i] = 0;
+		for (int i = 0; i < MAX_HISTORY; i++)
+			fluxHistory[i] = 0;
+		fluxPos = 0;
+		fluxCount = 0;
+		candidateFlux = 0;
+		olderFlux = 0;
+		lastOnset = Long.MIN_VALUE / 2;
+		pendingTime = -1;
+		activePitch = 0;
+		legatoCount = 0;
+	}
+
+	/*
+	 * Processes one frame. magnitude and frame are those of PitchDetector,
+	 * frameTime the sample position of the end of the frame and pitch the MIDI pitch
+	 * detected in it, or 0 if none
+	 */
+	public void analyze(float[] magnitude, float[] frame, long frameTime, int pitch)
+	{
+		double flux = 0;
+		for (int i = minBin; i < maxBin; i++)
+		{
+			double diff = magnitude[i] - prevMagnitude[i];
+			if (diff > 0)
+				flux += diff;
+		}
+		flux *= fluxScale;
+		System.arraycopy(magnitude, 0, prevMagnitude, 0, prevMagnitude.length);
+
+		double level = peak(frame, Math.max(0, fftSize - hopSize), fftSize);
+
+		// the previous frame was an onset if its flux peaked above the threshold
+		if (fluxCount >= PITCH_WAIT && candidateFlux > olderFlux && candidateFlux >= flux && candidateFlux > candidateThreshold)
+		{
+			int start = locateOnset();
+			long time = prevFrameTime - recent.length + start;
+			if (start >= 0 && time - lastOnset >= (long)(MIN_INTERVAL * sampleRate))
+			{
+				lastOnset = time;
+				pendingTime = time;
+				pendingVelocity = PolyphonicDetector.velocityFromAmplitude(peak(recent, start, recent.length));
+				pendingFrames = PITCH_WAIT;
+				if (activePitch > 0)
+					stopNote(time);
+			}
+		}
+		// the first hop of the old candidate frame comes right before the new one
+		System.arraycopy(recent, hopSize, recent, 0, hopSize);
+		System.arraycopy(frame, 0, recent, hopSize, fftSize);
+		prevFrameTime = frameTime;
+
+		// the threshold of each frame ignores the frame itself. The median is not raised by the previous onsets
+		olderFlux = candidateFlux;
+		candidateFlux = flux;
+		candidateThreshold = minFlux + medianFlux() * thresholdRatio;
+		fluxHistory[fluxPos] = flux;
+		fluxPos = (fluxPos + 1) % historyFrames;
+		if (fluxCount < historyFrames)
+			fluxCount++;
+
+		if (pendingTime >= 0)
+		{
+			if (pitch > 0)
+			{
+				startNote(pitch, pendingVelocity, pendingTime, level);
+				pendingTime = -1;
+			}
+			else if (--pendingFrames <= 0)
+				pendingTime = -1; // a noise burst, not a note
+			return;
+		}
+
+		if (activePitch == 0)
+			return;
+		if (level < SILENCE || level < attackLevel * RELEASE_RATIO)
+		{
+			stopNote(frameTime - hopSize / 2);
+			return;
+		}
+		// a new pitch without onset: legato playing or a slide
+		// (not while the flux is rising: an onset might be confirmed on the next frame)
+		if (pitch > 0 && pitch != activePitch && frameTime - lastOnset > fftSize && candidateFlux <= candidateThreshold)
+		{
+			if (pitch == legatoPitch)
+				legatoCount++;
+			else
+			{
+				legatoPitch = pitch;
+				legatoCount = 1;
+			}
+			if (legatoCount >= LEGATO_FRAMES)
+			{
+				int velocity = PolyphonicDetector.velocityFromAmplitude(level);
+				stopNote(frameTime - hopSize);
+				startNote(pitch, velocity, frameTime - hopSize, level);
+			}
+		}
+		else
+			legatoCount = 0;
+	}
+
+	private double medianFlux()
+	{
+		if (fluxCount == 0)
+			return 0;
+		// insertion sort: the history holds a few tens of values
+		for (int i = 0; i < fluxCount; i++)
+		{
+			double v = fluxHistory[i];
+			int j = i - 1;
+			while (j >= 0 && sortedFlux[j] > v)
+			{
+				sortedFlux[j + 1] = sortedFlux[j];
+				j--;
+			}
+			sortedFlux[j + 1] = v;
+		}
+		return sortedFlux[fluxCount / 2];
+	}
+
+	// pitch of the sounding note, or 0
+	public int getActivePitch()
+	{
+		return activePitch;
+	}
+
+	private void startNote(int pitch, int velocity, long time, double level)
+	{
+		activePitch = pitch;
+		attackLevel = level;
+		legatoCount = 0;
+		if (listener != null)
+			listener.noteOn(pitch, velocity, time);
+	}
+
+	private void stopNote(long time)
+	{
+		int pitch = activePitch;
+		activePitch = 0;
+		if (listener != null)
+			listener.noteOff(pitch, time);
+	}
+
+	/*
+	 * Finds the attack in recent: the sub block with the largest ratio between
+	 * its peak and the quietest of the RISE_BLOCKS before it. Only the part of the frame
+	 * after the previous onset is searched. Returns the sample index in the frame,
+	 * or -1 if no rise reaches MIN_RISE
+	 */
+	private int locateOnset()
+	{
+		int blocks = envelope.length;
+		int first = (int)Math.max(1, (lastOnset + (long)(MIN_INTERVAL * sampleRate) - (prevFrameTime - recent.length)) / SUB_BLOCK);
+		for (int k = 0; k < blocks; k++)
+			envelope[k] = peak(recent, k * SUB_BLOCK, (k + 1) * SUB_BLOCK);
+		int best = -1;
+		double bestRise = MIN_RISE;
+		for (int k = first; k < blocks; k++)
+		{
+			double floor = envelope[k - 1];
+			for (int j = Math.max(0, k - RISE_BLOCKS); j < k - 1; j++)
+				if (envelope[j] < floor)
+					floor = envelope[j];
+			double rise = envelope[k] / Math.max(floor, SILENCE / 4);
+			if (rise > bestRise && envelope[k] > SILENCE)
+			{
+				bestRise = rise;
+				best = k;
+			}
+		}
+		return best < 0 ? -1 : best * SUB_BLOCK;
+	}
+
+	private static double peak(float[] frame, int from, int to)
+	{
+		double max = 0;
+		for (int i = from; i < to; i++)
+		{
+			double v = Math.abs(frame[i]);
+			if (v > max)
+				max = v;
+		}
+		return max;
+	}
+}
@@ -0,0 +1,388 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+import java.nio.ByteBuffer;
+
+import org.jpab.StreamConfiguration.SampleFormat;
+
+/*
+ * Pitch detection engine used by AudioInputController.
+ * Samples, spectra and magnitudes are single precision from the decoder to the
+ * audio monitor: input is at most 24 bit, and floats halve the memory traffic of
+ * every frame. The FFT plan, the sample buffers and the magnitude array are allocated once
+ * by configure() and then reused by every call to process(), so that
+ * the audio thread does not produce garbage in steady state.
+ *
+ * Samples are accumulated in a circular history of windowSize samples.
+ * Every hopSize new samples the last windowSize samples are windowed and
+ * analyzed, so with hopSize < windowSize frames overlap (short-time Fourier transform)
+ * and detection latency depends on the hop instead of the window length.
+ * When hopSize == windowSize and the window is RECTANGULAR, each input buffer
+ * of windowSize samples is analyzed exactly once, as before.
+ *
+ * Multi-channel input is interleaved, one sample per channel per frame.
+ * All the channels are transformed in one batch and the estimators see either
+ * one selected channel or the mix of all of them (MIX).
+ */
+public class PitchDetector
+{
+	public interface FrameListener
+	{
+		// called once per analyzed frame. validPeak is false when the peak is out of range
+		public void frameAnalyzed(PitchDetector detector, boolean validPeak);
+	}
+
+	public static final int MIX = -1; // analyze the average of all the channels
+
+	int fftSize = 0; // analysis window, in samples
+	int hopSize = 0; // new samples between two frames
+	int windowType = WindowFunction.RECTANGULAR;
+	int channels = 1;
+	int selectedChannel = MIX;
+	float sampleRate = 44100;
+	SampleDecoder decoder = new SampleDecoder(SampleFormat.SIGNED_INTEGER_16);
+	float noiseGate = 0; // normalized samples below this are considered silence
+	float[] decoded = null; // interleaved samples of the current input buffer, normalized to [-1, 1)
+
+	MultiChannelFFT fft = null; // windowed samples in, packed half spectra out. One block per channel
+	float[] window = null; // precomputed window coefficients
+	double windowGain = 1;
+	float[][] history = null; // per channel circular buffer of the last fftSize samples
+	int historyPos = 0; // where the next sample goes. Also the oldest sample
+	int historyFill = 0; // valid samples in history, up to fftSize
+	int hopCount = 0; // samples received since the last frame
+	int channelIndex = 0; // channel of the next decoded sample
+	float[] frame = null; // last fftSize samples of the analyzed channel (or mix), oldest first, not windowed
+	float[] magnitude = null; // of the analyzed channel, or average of all the channels
+	float[] channelMagnitude = null;
+	PitchEstimator estimator = new FFTPeakEstimator();
+
+	// results of the last analyzed frame
+	int currentVolume = 0;
+	double hopVolume = 0; // peak of the current hop, 0 to 1
+	double frequency = 0;
+	double confidence = 0;
+	long frameCount = 0;
+
+	boolean trackVolume = false;
+	FrameListener listener = null;
+	AllocationCounter allocCounter = new AllocationCounter();
+
+	public PitchDetector()
+	{
+	}
+
+	public void setFrameListener(FrameListener l)
+	{
+		listener = l;
+	}
+
+	/*
+	 * Selects the strategy that turns a frame into a frequency.
+	 * If the detector is already configured the estimator is sized right away
+	 */
+	public void setEstimator(PitchEstimator e)
+	{
+		estimator = e;
+		if (fft != null)
+			estimator.configure(fftSize, sampleRate);
+	}
+
+	public PitchEstimator getEstimator()
+	{
+		return estimator;
+	}
+
+	public void configure(int windowSize, int hop, int winType, float rate, SampleFormat format)
+	{
+		configure(windowSize, hop, winType, rate, format, 1);
+	}
+
+	/*
+	 * Prepares the detector. Allocation happens only when the configuration actually changes.
+	 * windowSize is in samples per channel; hop is clamped to 1..windowSize
+	 */
+	public void configure(int windowSize, int hop, int winType, float rate, SampleFormat format, int numChannels)
+	{
+		sampleRate = rate;
+		decoder.setFormat(format);
+		// 8 bit devices are noisy: keep the gate they always had (5 out of 128)
+		if (decoder.getBytesPerSample() == 1)
+			noiseGate = 5.0f / 128;
+		else
+			noiseGate = 0;
+		if (hop < 1 || hop > windowSize)
+			hop = windowSize;
+		hopSize = hop;
+		estimator.configure(windowSize, sampleRate);
+
+		if (selectedChannel >= numChannels)
+			selectedChannel = MIX;
+
+		if (windowSize == fftSize && winType == windowType && numChannels == channels && fft != null)
+			return;
+
+		System.out.println("[PitchDetector] configure FFT for " + windowSize + " samples, hop " + hopSize + ", " + numChannels + " channel(s)");
+		fftSize = windowSize;
+		windowType = winType;
+		channels = numChannels;
+		fft = new MultiChannelFFT(fftSize, channels);
+		double[] table = WindowFunction.create(windowType, fftSize);
+		windowGain = WindowFunction.coherentGain(table);
+		window = new float[fftSize];
+		for (int i = 0; i < fftSize; i++)
+			window[i] = (float)table[i];
+		history = new float[channels][fftSize];
+		frame = new float[fftSize];
+		decoded = new float[fftSize * channels];
+		magnitude = new float[fftSize / 2];
+		channelMagnitude = new float[fftSize / 2];
+		reset();
+		allocCounter.reset();
+	}
+
+	// forgets the sample history. The next frame comes after a whole window has been received
+	public void reset()
+	{
+		historyPos = 0;
+		historyFill = 0;
+		hopCount = 0;
+		channelIndex = 0;
+		hopVolume = 0;
+		frameCount = 0;
+	}
+
+	/*
+	 * Channel given to the estimators and returned by getMagnitude(), or MIX for all of them.
+	 * Out of range values select MIX
+	 */
+	public void setChannel(int channel)
+	{
+		if (channel < 0 || channel >= channels)
+			channel = MIX;
+		selectedChannel = channel;
+	}
+
+	public int getChannel()
+	{
+		return selectedChannel;
+	}
+
+	public int getChannels()
+	{
+		return channels;
+	}
+
+	public void enableVolume(boolean enable)
+	{
+		trackVolume = enable;
+	}
+
+	/*
+	 * Consumes all the remaining samples of tmpBuf, analyzing a frame
+	 * every hopSize samples. Returns the number of analyzed frames
+	 */
+	public int process(ByteBuffer tmpBuf)
+	{
+		allocCounter.begin();
+		int frames = 0;
+		int count;
+
+		while ((count = decoder.decode(tmpBuf, decoded, 0, decoded.length)) > 0)
+			frames += consume(decoded, 0, count);
+
+		allocCounter.end();
+		return frames;
+	}
+
+	/*
+	 * Like process(ByteBuffer), for interleaved samples already decoded
+	 * to [-1, 1) in the format given to configure()
+	 */
+	public int process(float[] samples, int off, int count)
+	{
+		allocCounter.begin();
+		int frames = consume(samples, off, count);
+		allocCounter.end();
+		return frames;
+	}
+
+	private int consume(float[] samples, int off, int count)
+	{
+		int frames = 0;
+		for (int i = off; i < off + count; i++)
+		{
+			float sample = samples[i];
+			float level = Math.abs(sample);
+			if (trackVolume == true && level > hopVolume)
+				hopVolume = level;
+			if (level < noiseGate)
+				sample = 0;
+			history[channelIndex][historyPos] = sample;
+			if (++channelIndex == channels)
+			{
+				channelIndex = 0;
+				frames += advance();
+			}
+		}
+		return frames;
+	}
+
+	// one sample of every channel has been stored at historyPos
+	private int advance()
+	{
+		historyPos++;
+		if (historyPos == fftSize)
+			historyPos = 0;
+		if (historyFill < fftSize)
+			historyFill++;
+		hopCount++;
+
+		if (hopCount < hopSize || historyFill < fftSize)
+			return 0;
+
+		hopCount = 0;
+		currentVolume = (int)(hopVolume * 127);
+		hopVolume = 0;
+		boolean valid = analyzeFrame();
+		frameCount++;
+		if (listener != null)
+			listener.frameAnalyzed(this, valid);
+		return 1;
+	}
+
+	private boolean analyzeFrame()
+	{
+		// unroll the circular histories, oldest sample first, into the channel blocks
+		float[] data = fft.getData();
+		int tail = fftSize - historyPos;
+		for (int k = 0; k < channels; k++)
+		{
+			int off = k * fftSize;
+			System.arraycopy(history[k], historyPos, data, off, tail);
+			System.arraycopy(history[k], 0, data, off + tail, historyPos);
+		}
+
+		// the estimators work on the selected channel, or on the mix
+		if (channels == 1 || selectedChannel != MIX)
+			System.arraycopy(data, (channels == 1 ? 0 : selectedChannel) * fftSize, frame, 0, fftSize);
+		else
+		{
+			float scale = 1.0f / channels;
+			for (int i = 0; i < fftSize; i++)
+			{
+				float sum = 0;
+				for (int k = 0, j = i; k < channels; k++, j += fftSize)
+					sum += data[j];
+				frame[i] = sum * scale;
+			}
+		}
+
+		for (int k = 0; k < channels; k++)
+		{
+			int off = k * fftSize;
+			for (int i = 0; i < fftSize; i++)
+				data[off + i] *= window[i];
+		}
+
+		// input is purely real: the real transform does half the work of complexForward
+		fft.forward();
+
+		if (channels == 1 || selectedChannel != MIX)
+			fft.magnitude(channels == 1 ? 0 : selectedChannel, magnitude);
+		else
+			fft.summedMagnitude(magnitude, channelMagnitude);
+
+		frequency = estimator.estimate(frame, magnitude);
+		confidence = estimator.getConfidence();
+		if (frequency > 2000)
+			return false;
+		return true;
+	}
+
+	// coherent gain of the analysis window, to turn magnitudes back into amplitudes
+	public double getWindowGain()
+	{
+		return windowGain;
+	}
+
+	public int getFFTSize()
+	{
+		return fftSize;
+	}
+
+	public int getHopSize()
+	{
+		return hopSize;
+	}
+
+	// position of the end of the last analyzed frame, in samples since reset()
+	public long getFrameTime()
+	{
+		return fftSize + (frameCount - 1) * hopSize;
+	}
+
+	// peak level of the last hop, from 0 to 127
+	public int getVolume()
+	{
+		return currentVolume;
+	}
+
+	public double getFrequency()
+	{
+		return frequency;
+	}
+
+	// confidence of the last estimate, from 0 to 1
+	public double getConfidence()
+	{
+		return confidence;
+	}
+
+	// samples of the last frame, oldest first and not windowed. Of the analyzed channel, or the mix
+	public float[] getFrame()
+	{
+		return frame;
+	}
+
+	// magnitudes of the last frame. Samples are normalized, so full scale is 1
+	public float[] getMagnitude()
+	{
+		return magnitude;
+	}
+
+	/*
+	 * Magnitudes of one channel of the last frame, whatever channel is selected.
+	 * dst must hold getFFTSize() / 2 values
+	 */
+	public void getChannelMagnitude(int channel, float[] dst)
+	{
+		fft.magnitude(channel, dst);
+	}
+
+	// bytes allocated by the last call to process(). -1 if the JVM cannot tell
+	public long getLastAllocatedBytes()
+	{
+		return allocCounter.getLastBytes();
+	}
+
+	public AllocationCounter getAllocationCounter()
+	{
+		return allocCounter;
+	}
+}
@@ -0,0 +1,43 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * Strategy used by PitchDetector to turn an analysis frame into a frequency.
+ * Implementations allocate their work buffers in configure() and must not
+ * allocate in estimate(), which runs once per frame on the analysis thread.
+ */
+public interface PitchEstimator
+{
+	/*
+	 * Called whenever the frame size or the sample rate changes
+	 */
+	public void configure(int frameSize, float sampleRate);
+
+	/*
+	 * samples: the last frameSize time domain samples, oldest first, not windowed
+	 * magnitude: magnitude spectrum of the windowed frame, frameSize / 2 bins
+	 * Returns the estimated fundamental in Hz, or 0 if none was found
+	 */
+	public double estimate(float[] samples, float[] magnitude);
+
+	/*
+	 * Confidence of the last estimate, from 0 (none) to 1
+	 */
+	public double getConfidence();
+}
@@ -0,0 +1,79 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * Conversions between frequencies and MIDI pitches over the whole 0-127 range.
+ * Frequency to pitch is a closed form log2 computation, so it costs the same
+ * for every note and does not allocate. Equal temperament, A4 (pitch 69) = 440Hz
+ */
+public final class PitchMath
+{
+	public static final double A4_FREQUENCY = 440.0;
+	public static final int A4_PITCH = 69;
+
+	private static final double SEMITONES_PER_LN = 12.0 / Math.log(2);
+	private static final double[] pitchFrequencies = new double[128];
+
+	static
+	{
+		for (int p = 0; p < 128; p++)
+			pitchFrequencies[p] = A4_FREQUENCY * Math.pow(2, (p - A4_PITCH) / 12.0);
+	}
+
+	private PitchMath()
+	{
+	}
+
+	// pitch as a real number. 69.5 is a quarter tone above A4
+	public static double fractionalPitch(double freq)
+	{
+		return A4_PITCH + Math.log(freq / A4_FREQUENCY) * SEMITONES_PER_LN;
+	}
+
+	/*
+	 * Nearest MIDI pitch of freq, or -1 if freq is not positive or
+	 * falls outside of the MIDI range
+	 */
+	public static int pitchFromFrequency(double freq)
+	{
+		if (freq <= 0)
+			return -1;
+		int pitch = (int)Math.floor(fractionalPitch(freq) + 0.5);
+		if (pitch < 0 || pitch > 127)
+			return -1;
+		return pitch;
+	}
+
+	/*
+	 * Deviation of freq from its nearest pitch, in cents (-50..+50).
+	 * Positive means sharp
+	 */
+	public static double centsFromFrequency(double freq)
+	{
+		if (freq <= 0)
+			return 0;
+		double p = fractionalPitch(freq);
+		return (p - Math.floor(p + 0.5)) * 100;
+	}
+
+	public static double frequencyFromPitch(int pitch)
+	{
+		return pitchFrequencies[pitch];
+	}
+}
@@ -0,0 +1,303 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * Detects the set of notes sounding in a magnitude spectrum.
+ * Spectral peaks are picked and refined with parabolic interpolation, then each
+ * peak is tried as a fundamental and scored by the energy of the peaks that
+ * sit on its harmonics. The best candidate is taken, the peaks it explains
+ * are removed, and the search repeats up to MAX_POLYPHONY notes.
+ * A note must be seen in two consecutive frames to start and be missing in two
+ * consecutive frames to stop, which keeps single noisy frames from toggling notes.
+ * All buffers are allocated in configure(), analyze() does not allocate.
+ */
+public class PolyphonicDetector
+{
+	public interface NoteListener
+	{
+		// velocity 0 means note off, like a MIDI NOTE_ON with zero velocity
+		public void noteEvent(int pitch, int velocity);
+	}
+
+	static final int MAX_PEAKS = 48;
+	static final int MAX_POLYPHONY = 6;
+	static final int MAX_HARMONICS = 8;
+	static final double HARMONIC_TOLERANCE = 0.03; // relative distance from h * f0
+	static final int LOWEST_PITCH = 21; // A0
+	static final int HIGHEST_PITCH = 108; // C8
+
+	int fftSize = 0;
+	float sampleRate = 44100;
+	double amplitudeScale = 1; // converts a bin magnitude into a 0..1 amplitude
+	double peakThreshold = 0.05; // relative to the strongest peak
+	double noteThreshold = 0.2; // salience relative to the first detected note
+
+	// spectral peaks of the current frame
+	int peakCount = 0;
+	double[] peakFreq = new double[MAX_PEAKS];
+	double[] peakMag = new double[MAX_PEAKS];
+	double[] peakLeft = new double[MAX_PEAKS]; // magnitude not yet explained by a note
+
+	// notes of the current frame and their state across frames
+	int[] framePitches = new int[MAX_POLYPHONY];
+	int[] frameVelocities = new int[MAX_POLYPHONY];
+	int frameNotes = 0;
+	boolean[] active = new boolean[128];
+	byte[] seenCount = new byte[128];
+	byte[] missedCount = new byte[128];
+	int[] pendingVelocity = new int[128];
+
+	NoteListener listener = null;
+
+	public PolyphonicDetector()
+	{
+	}
+
+	public void setNoteListener(NoteListener l)
+	{
+		listener = l;
+	}
+
+	/*
+	 * fullScale is the largest sample value of the input format.
+	 * windowGain is the coherent gain of the analysis window
+	 */
+	public void configure(int size, float rate, double fullScale, double windowGain)
+	{
+		fftSize = size;
+		sampleRate = rate;
+		amplitudeScale = 2.0 / (fftSize * windowGain * fullScale);
+		reset();
+	}
+
+	// releases all the active notes
+	public void reset()
+	{
+		for (int p = 0; p < 128; p++)
+		{
+			if (active[p] == true && listener != null)
+				listener.noteEvent(p, 0);
+			active[p] = false;
+			seenCount[p] = 0;
+			missedCount[p] = 0;
+		}
+		frameNotes = 0;
+	}
+
+	public void analyze(float[] magnitude)
+	{
+		findPeaks(magnitude);
+		findNotes();
+		updateActiveNotes();
+	}
+
+	private void findPeaks(float[] magnitude)
+	{
+		int bins = magnitude.length;
+		double maxMag = 0;
+		for (int i = 1; i < bins; i++)
+			if (magnitude[i] > maxMag)
+				maxMag = magnitude[i];
+
+		peakCount = 0;
+		double minMag = maxMag * peakThreshold;
+		double binWidth = sampleRate / fftSize;
+		int firstBin = Math.max(1, (int)(PitchMath.frequencyFromPitch(LOWEST_PITCH) * 0.97 / binWidth));
+
+		for (int i = firstBin; i < bins - 1; i++)
+		{
+			double m = magnitude[i];
+			if (m < minMag || m <= magnitude[i - 1] || m < magnitude[i + 1])
+				continue;
+
+			// parabolic interpolation of the peak position
+			double s0 = magnitude[i - 1], s2 = magnitude[i + 1];
+			double denom = s0 - 2 * m + s2;
+			double offset = denom != 0 ? 0.5 * (s0 - s2) / denom : 0;
+
+			if (peakCount < MAX_PEAKS)
+			{
+				peakFreq[peakCount] = (i + offset) * binWidth;
+				peakMag[peakCount] = m;
+				peakCount++;
+			}
+			else
+			{
+				// keep the strongest peaks only
+				int weakest = 0;
+				for (int k = 1; k < MAX_PEAKS; k++)
+					if (peakMag[k] < peakMag[weakest])
+						weakest = k;
+				if (peakMag[weakest] < m)
+				{
+					peakFreq[weakest] = (i + offset) * binWidth;
+					peakMag[weakest] = m;
+				}
+			}
+		}
+		for (int k = 0; k < peakCount; k++)
+			peakLeft[k] = peakMag[k];
+	}
+
+	// harmonic salience of f0, using only the magnitude not explained yet
+	private double salience(double f0)
+	{
+		double sum = 0;
+		for (int h = 1; h <= MAX_HARMONICS; h++)
+		{
+			double target = f0 * h;
+			double best = 0;
+			for (int k = 0; k < peakCount; k++)
+			{
+				if (Math.abs(peakFreq[k] - target) < target * HARMONIC_TOLERANCE && peakLeft[k] > best)
+					best = peakLeft[k];
+			}
+			if (h == 1 && best == 0)
+				return 0; // a fundamental must have its own peak
+			sum += best / Math.sqrt(h);
+		}
+		return sum;
+	}
+
+	private void findNotes()
+	{
+		frameNotes = 0;
+		double firstSalience = 0;
+
+		while (frameNotes < MAX_POLYPHONY)
+		{
+			double bestSalience = 0;
+			double bestFreq = 0;
+			for (int k = 0; k < peakCount; k++)
+			{
+				if (peakLeft[k] <= 0)
+					continue;
+				double s = salience(peakFreq[k]);
+				if (s > bestSalience)
+				{
+					bestSalience = s;
+					bestFreq = peakFreq[k];
+				}
+			}
+			if (bestSalience <= 0 || bestSalience < firstSalience * noteThreshold)
+				break;
+			if (frameNotes == 0)
+				firstSalience = bestSalience;
+
+			int pitch = PitchMath.pitchFromFrequency(bestFreq);
+			double fundamentalAmp = 0;
+
+			// remove what this note explains from the remaining peaks
+			for (int h = 1; h <= MAX_HARMONICS; h++)
+			{
+				double target = bestFreq * h;
+				for (int k = 0; k < peakCount; k++)
+				{
+					if (Math.abs(peakFreq[k] - target) < target * HARMONIC_TOLERANCE)
+					{
+						if (h == 1)
+							fundamentalAmp = Math.max(fundamentalAmp, peakMag[k]);
+						peakLeft[k] = 0;
+					}
+				}
+			}
+
+			if (pitch < LOWEST_PITCH || pitch > HIGHEST_PITCH || isFrameNote(pitch) == true)
+				continue;
+			framePitches[frameNotes] = pitch;
+			frameVelocities[frameNotes] = velocityFromAmplitude(fundamentalAmp * amplitudeScale);
+			frameNotes++;
+		}
+	}
+
+	private boolean isFrameNote(int pitch)
+	{
+		for (int i = 0; i < frameNotes; i++)
+			if (framePitches[i] == pitch)
+				return true;
+		return false;
+	}
+
+	// maps -60..0 dBFS onto MIDI velocities 1..127
+	static int velocityFromAmplitude(double amp)
+	{
+		if (amp <= 0)
+			return 1;
+		double db = 20 * Math.log10(amp);
+		int vel = (int)(127 * (db + 60) / 60);
+		return Math.max(1, Math.min(127, vel));
+	}
+
+	private void updateActiveNotes()
+	{
+		for (int p = LOWEST_PITCH; p <= HIGHEST_PITCH; p++)
+		{
+			int idx = -1;
+			for (int i = 0; i < frameNotes; i++)
+				if (framePitches[i] == p)
+					idx = i;
+
+			if (idx >= 0)
+			{
+				missedCount[p] = 0;
+				if (active[p] == false)
+				{
+					if (seenCount[p] == 0)
+						pendingVelocity[p] = frameVelocities[idx];
+					seenCount[p]++;
+					if (seenCount[p] >= 2)
+					{
+						active[p] = true;
+						seenCount[p] = 0;
+						if (listener != null)
+							listener.noteEvent(p, pendingVelocity[p]);
+					}
+				}
+			}
+			else
+			{
+				seenCount[p] = 0;
+				if (active[p] == true)
+				{
+					missedCount[p]++;
+					if (missedCount[p] >= 2)
+					{
+						active[p] = false;
+						missedCount[p] = 0;
+						if (listener != null)
+							listener.noteEvent(p, 0);
+					}
+				}
+			}
+		}
+	}
+
+	// notes found in the last frame, before the two frames confirmation
+	public int getFrameNotes(int[] pitches)
+	{
+		int n = Math.min(frameNotes, pitches.length);
+		System.arraycopy(framePitches, 0, pitches, 0, n);
+		return n;
+	}
+
+	public boolean isActive(int pitch)
+	{
+		return active[pitch];
+	}
+}
@@ -62,12 +62,20 @@ import java.util.Properties;
  *  audiodevice      | index of the audio input device to use for capture
  *  defaultInput     | default input to capture notes. 0: MIDI, 1: Microphone
  *  audiosensitivity | audio sensitivity threshold
+ *  audioFFTSize     | audio analysis window in samples. -1: one capture buffer
+ *  audioHopSize     | samples between two overlapped analysis frames. -1: no overlap
+ *  audioWindow      | analysis window function - 0: rectangular, 1: Hann, 2: Blackman
+ *  audioPitchEstimator | pitch estimation - 0: FFT peak, 1: YIN
+ *  audioPolyphonic  | chords detection from audio - 0: disabled, 1: enabled
+ *  audioChannels    | number of input channels to capture. -1: mono
+ *  audioChannel     | channel used for pitch detection. -1: mix of all the channels
+ *  audioBlockingIO  | capture with blocking reads instead of a callback - 0: disabled, 1: enabled
  *  
  *  synthDriver      | synthesizer system to be used (Java or Fluidsynth)
  *  fluidDevice		 | audio device that Fluidsynth will use to output sounds     // TODO: not used yet
  *  soundfontPath    | path of the Soundfont to use when Fluidsynth is active
  *  
- *  inputDevice      | input device to use to acquire notes [MIDI | Audio],index
+ *  inputDevice      | input device to use to acquire notes: MIDI,index or Audio,"name [host API]"
  *  outputDevice     | outputDevice to reproduce notes [Java | Fluidsynth],index
  */
 public class Preferences 
@@ -0,0 +1,313 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * The clock of the games. A single high priority thread plays the precompiled timelines
+ * (metronome clicks, cursor start, playback notes, see TimelineEvent) against System.nanoTime(),
+ * so all of them share the same time base and none depends on the javax.sound Sequencer.
+ *
+ * Waiting for an event is done in two steps: the thread parks until shortly before the
+ * event and then spins on nanoTime() for the last stretch. The spin window follows the
+ * measured oversleep of parkNanos() on this system, so it stays short where the OS timer
+ * is precise and grows where it is coarse.
+ *
+ * Timelines are loaded into slots and started together, with one game listener per run.
+ * Besides it, any number of subscribers (the synthesizer, other game modes) receive every
+ * event of every run. Listeners are called on the scheduler thread and must return quickly:
+ * anything slow belongs to the Swing thread.
+ *
+ * The lateness of each event (dispatch time minus scheduled time) is the jitter,
+ * kept in a histogram of power of two microseconds buckets.
+ */
+public class RealTimeScheduler
+{
+	public interface Listener
+	{
+		// time is the scheduled System.nanoTime() of the event, not the time of the call
+		public void timelineEvent(int opcode, int arg, long time);
+	}
+
+	public static final int SLOTS = 2;
+	public static final int PLAYBACK = 0; // same indexes MidiController always used
+	public static final int METRONOME = 1;
+	public static final int BUCKETS = 24;
+
+	private static final long START_DELAY = 20000000L; // from start() to time 0, to be on time from the first event
+	private static final long MIN_SPIN = 100000L;
+	private static final long MAX_SPIN = 2000000L;
+
+	// run state, guarded by this
+	private final Timeline[] loaded = new Timeline[SLOTS];
+	private final Timeline[] active = new Timeline[SLOTS];
+	private final int[] position = new int[SLOTS];
+	private long runStart = 0;
+	private long generation = 0;
+	private Listener runListener = null;
+
+	private volatile Listener[] subscribers = new Listener[0];
+	private volatile boolean running = true;
+	private final Thread thread;
+	private long spinNanos = MAX_SPIN; // scheduler thread only
+
+	// jitter. Written by the scheduler thread only
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	private volatile long dispatched = 0;
+	private volatile long totalLateness = 0;
+	private volatile long maxLateness = 0;
+
+	public RealTimeScheduler()
+	{
+		thread = new Thread("RealTimeScheduler")
+		{
+			public void run()
+			{
+				schedulerLoop();
+			}
+		};
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	// prepares a timeline for the next start(). null empties the slot
+	public synchronized void load(int slot, Timeline t)
+	{
+		loaded[slot] = t;
+	}
+
+	/*
+	 * Starts all the loaded timelines together, replacing whatever was playing.
+	 * Returns the System.nanoTime() of time 0
+	 */
+	public synchronized long start(Listener listener)
+	{
+		runStart = System.nanoTime() + START_DELAY;
+		runListener = listener;
+		generation++;
+		for (int i = 0; i < SLOTS; i++)
+		{
+			active[i] = loaded[i];
+			loaded[i] = null;
+			position[i] = 0;
+		}
+		LockSupport.unpark(thread);
+		return runStart;
+	}
+
+	// stops one timeline of the current run. The run ends when no timeline is left
+	public synchronized void stop(int slot)
+	{
+		active[slot] = null;
+		loaded[slot] = null;
+		if (active[PLAYBACK] == null && active[METRONOME] == null)
+			runListener = null;
+		LockSupport.unpark(thread);
+	}
+
+	public synchronized boolean isPlaying()
+	{
+		for (int i = 0; i < SLOTS; i++)
+			if (active[i] != null && position[i] < active[i].size())
+				return true;
+		return false;
+	}
+
+	// System.nanoTime() of time 0 of the current (or last) run
+	public synchronized long getStartTime()
+	{
+		return runStart;
+	}
+
+	// l receives the events of every run until it is removed
+	public synchronized void addListener(Listener l)
+	{
+		Listener[] s = new Listener[subscribers.length + 1];
+		System.arraycopy(subscribers, 0, s, 0, subscribers.length);
+		s[subscribers.length] = l;
+		subscribers = s;
+	}
+
+	public synchronized void removeListener(Listener l)
+	{
+		Listener[] cur = subscribers;
+		for (int i = 0; i < cur.length; i++)
+		{
+			if (cur[i] == l)
+			{
+				Listener[] s = new Listener[cur.length - 1];
+				System.arraycopy(cur, 0, s, 0, i);
+				System.arraycopy(cur, i + 1, s, i, cur.length - i - 1);
+				subscribers = s;
+				return;
+			}
+		}
+	}
+
+	private void schedulerLoop()
+	{
+		while (running == true)
+		{
+			int slot = -1;
+			int pos = 0;
+			long due = 0, gen;
+			synchronized (this)
+			{
+				gen = generation;
+				for (int i = 0; i < SLOTS; i++)
+				{
+					Timeline t = active[i];
+					if (t == null || position[i] >= t.size())
+						continue;
+					long time = runStart + t.getTime(position[i]);
+					if (slot == -1 || time < due)
+					{
+						slot = i;
+						due = time;
+					}
+				}
+				if (slot != -1)
+					pos = position[slot];
+			}
+
+			if (slot == -1)
+			{
+				// nothing to play: start() and stop() unpark the thread
+				LockSupport.park(this);
+				continue;
+			}
+
+			long now = System.nanoTime();
+			if (due - now > spinNanos)
+			{
+				// coarse wait, then look again: the run may have changed meanwhile
+				long wake = due - spinNanos;
+				LockSupport.parkNanos(this, wake - now);
+				adaptSpin(System.nanoTime() - wake);
+				continue;
+			}
+			while ((now = System.nanoTime()) < due)
+				; // spin for the last stretch
+
+			int opcode, arg;
+			Listener game;
+			synchronized (this)
+			{
+				if (gen != generation || active[slot] == null || position[slot] != pos)
+					continue;
+				Timeline t = active[slot];
+				opcode = t.getOpcode(pos);
+				arg = t.getArg(pos);
+				position[slot] = pos + 1;
+				game = runListener;
+			}
+
+			recordLateness(now - due);
+			Listener[] s = subscribers;
+			for (int i = 0; i < s.length; i++)
+				dispatch(s[i], opcode, arg, due);
+			if (game != null)
+				dispatch(game, opcode, arg, due);
+		}
+	}
+
+	private void dispatch(Listener l, int opcode, int arg, long due)
+	{
+		try {
+			l.timelineEvent(opcode, arg, due);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// keeps the spin window at about twice the recent oversleep of parkNanos()
+	private void adaptSpin(long oversleep)
+	{
+		long target = oversleep * 2;
+		if (target > spinNanos)
+			spinNanos = target;
+		else
+			spinNanos -= (spinNanos - target) / 16;
+		if (spinNanos < MIN_SPIN)
+			spinNanos = MIN_SPIN;
+		else if (spinNanos > MAX_SPIN)
+			spinNanos = MAX_SPIN;
+	}
+
+	private void recordLateness(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+		long micros = nanos / 1000;
+		int bucket = micros < 2 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+		histogram.lazySet(bucket, histogram.get(bucket) + 1);
+		totalLateness += nanos;
+		if (nanos > maxLateness)
+			maxLateness = nanos;
+		dispatched++;
+	}
+
+	// stops the scheduler thread. Nothing can be played afterwards
+	public void close()
+	{
+		running = false;
+		LockSupport.unpark(thread);
+	}
+
+	public long getDispatched()
+	{
+		return dispatched;
+	}
+
+	// mean lateness of the events in microseconds
+	public double getMeanJitter()
+	{
+		long n = dispatched;
+		return n > 0 ? totalLateness / 1000.0 / n : 0;
+	}
+
+	public double getMaxJitter()
+	{
+		return maxLateness / 1000.0;
+	}
+
+	// current spin window in microseconds
+	public double getSpinWindow()
+	{
+		return spinNanos / 1000.0;
+	}
+
+	/*
+	 * Fills dst (BUCKETS values) with the lateness histogram: bucket 0 counts events
+	 * less than 2 microseconds late, bucket i those from 2^i to 2^(i+1) - 1
+	 */
+	public void getHistogram(long[] dst)
+	{
+		for (int i = 0; i < BUCKETS; i++)
+			dst[i] = histogram.get(i);
+	}
+
+	public String getJitterReport()
+	{
+		return "events=" + getDispatched() + " meanJitterUs=" + Math.round(getMeanJitter()) + 
+			   " maxJitterUs=" + Math.round(getMaxJitter()) + " spinUs=" + Math.round(getSpinWindow());
+	}
+}
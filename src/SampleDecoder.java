@@ -0,0 +1,170 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import org.jpab.StreamConfiguration.SampleFormat;
+
+/*
+ * Converts raw PortAudio input into float samples normalized to [-1, 1).
+ * PortAudio delivers samples in the native byte order of the machine, so 16 and 32 bit
+ * formats are read through a ShortBuffer/IntBuffer/FloatBuffer view in
+ * ByteOrder.nativeOrder() instead of assembling them one byte at a time.
+ * Samples are read with absolute gets straight from the buffer into dst: on the direct
+ * buffer of a stream this reads native memory, with no intermediate array.
+ * Views are cached: as long as the same ByteBuffer is decoded (the stream hands out
+ * the same input buffer on every callback) decode() does not allocate.
+ * An instance must be used by a single thread.
+ */
+public class SampleDecoder
+{
+	private SampleFormat format = SampleFormat.SIGNED_INTEGER_16;
+	private int bytesPerSample = 2;
+
+	private ByteBuffer viewSource = null; // the buffer the views below were created on
+	private ShortBuffer shortView = null;
+	private IntBuffer intView = null;
+	private FloatBuffer floatView = null;
+
+	public SampleDecoder()
+	{
+	}
+
+	public SampleDecoder(SampleFormat fmt)
+	{
+		setFormat(fmt);
+	}
+
+	public void setFormat(SampleFormat fmt)
+	{
+		format = fmt;
+		bytesPerSample = fmt.getSize(); // rejects unknown formats
+		viewSource = null;
+	}
+
+	public SampleFormat getFormat()
+	{
+		return format;
+	}
+
+	public int getBytesPerSample()
+	{
+		return bytesPerSample;
+	}
+
+	/*
+	 * Decodes up to maxSamples whole samples from the remaining bytes of src into dst[off...].
+	 * The position of src must fall on a sample boundary and is advanced past the decoded bytes.
+	 * Returns the number of samples decoded
+	 */
+	public int decode(ByteBuffer src, float[] dst, int off, int maxSamples)
+	{
+		int count = Math.min(maxSamples, src.remaining() / bytesPerSample);
+		if (count <= 0)
+			return 0;
+		int pos = src.position();
+
+		if (format == SampleFormat.SIGNED_INTEGER_16)
+		{
+			ShortBuffer view = shortView(src);
+			for (int i = 0, s = pos / 2; i < count; i++, s++)
+				dst[off + i] = view.get(s) * (1.0f / 32768);
+		}
+		else if (format == SampleFormat.FLOAT_32)
+		{
+			FloatBuffer view = floatView(src);
+			for (int i = 0, s = pos / 4; i < count; i++, s++)
+				dst[off + i] = view.get(s);
+		}
+		else if (format == SampleFormat.SIGNED_INTEGER_32)
+		{
+			IntBuffer view = intView(src);
+			for (int i = 0, s = pos / 4; i < count; i++, s++)
+				dst[off + i] = view.get(s) * (1.0f / 2147483648.0f);
+		}
+		else if (format == SampleFormat.SIGNED_INTEGER_8)
+		{
+			for (int i = 0; i < count; i++)
+				dst[off + i] = src.get(pos + i) * (1.0f / 128);
+		}
+		else if (format == SampleFormat.UNSIGNED_INTEGER_8)
+		{
+			for (int i = 0; i < count; i++)
+				dst[off + i] = ((src.get(pos + i) & 0xFF) - 128) * (1.0f / 128);
+		}
+		else if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN)
+		{
+			// 24 bit: no view type exists
+			for (int i = 0, j = pos; i < count; i++, j += 3)
+				dst[off + i] = ((src.get(j + 2) << 16) | ((src.get(j + 1) & 0xFF) << 8) | (src.get(j) & 0xFF)) * (1.0f / 8388608);
+		}
+		else
+		{
+			for (int i = 0, j = pos; i < count; i++, j += 3)
+				dst[off + i] = ((src.get(j) << 16) | ((src.get(j + 1) & 0xFF) << 8) | (src.get(j + 2) & 0xFF)) * (1.0f / 8388608);
+		}
+
+		src.position(pos + count * bytesPerSample);
+		return count;
+	}
+
+	// views span the whole capacity of src, so they stay valid whatever its position and limit
+	private boolean sameSource(ByteBuffer src)
+	{
+		if (src == viewSource)
+			return true;
+		viewSource = src;
+		shortView = null;
+		intView = null;
+		floatView = null;
+		return false;
+	}
+
+	private ByteBuffer wholeBuffer(ByteBuffer src)
+	{
+		ByteBuffer dup = src.duplicate();
+		dup.clear();
+		return dup.order(ByteOrder.nativeOrder());
+	}
+
+	private ShortBuffer shortView(ByteBuffer src)
+	{
+		if (sameSource(src) == false || shortView == null)
+			shortView = wholeBuffer(src).asShortBuffer();
+		return shortView;
+	}
+
+	private IntBuffer intView(ByteBuffer src)
+	{
+		if (sameSource(src) == false || intView == null)
+			intView = wholeBuffer(src).asIntBuffer();
+		return intView;
+	}
+
+	private FloatBuffer floatView(ByteBuffer src)
+	{
+		if (sameSource(src) == false || floatView == null)
+			floatView = wholeBuffer(src).asFloatBuffer();
+		return floatView;
+	}
+}
@@ -0,0 +1,164 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Lock-free single producer / single consumer ring of decoded samples, between the
+ * PortAudio callback and the analysis thread.
+ * The callback decodes its stable direct input buffer straight into the ring with a
+ * SampleDecoder, so samples go from native memory to the floats the analysis reads
+ * with no copy in between. When there is not enough room for a whole buffer, the
+ * buffer is dropped and counted as an overrun. The consumer waits when the ring is
+ * empty; how far it lags is the backlog it finds when it reads, and the highest value is kept.
+ * Each write is stamped with its capture time, so that the consumer can tell when the
+ * samples it reads were captured, however late it reads them.
+ * Positions count interleaved samples. Exactly one thread may write and exactly one thread may read.
+ */
+public class SampleRingBuffer
+{
+	private final float[] data;
+	private final int mask;
+
+	// positions grow forever. Index in data is (pos & mask)
+	private final AtomicLong writePos = new AtomicLong(0);
+	private final AtomicLong readPos = new AtomicLong(0);
+
+	// each counter has a single writer, so volatile is enough
+	private volatile long overruns = 0;
+	private volatile int maxBacklog = 0;
+
+	// capture time of the last write, and the write position it ends at.
+	// stampSeq is odd while the producer updates the pair
+	private volatile long stampSeq = 0;
+	private volatile long stampPos = 0;
+	private volatile long stampNanos = 0;
+
+	public SampleRingBuffer(int minCapacity)
+	{
+		data = new float[ConcurrencyUtils.nextPow2(minCapacity)];
+		mask = data.length - 1;
+	}
+
+	public int capacity()
+	{
+		return data.length;
+	}
+
+	// number of samples ready to be read
+	public int available()
+	{
+		return (int)(writePos.get() - readPos.get());
+	}
+
+	/*
+	 * Producer side. Decodes all the remaining whole samples of src into the ring, or nothing at all,
+	 * and records that the last of them was captured at nanos on the System.nanoTime() clock.
+	 * The position of src is advanced past the decoded samples
+	 */
+	public boolean write(ByteBuffer src, SampleDecoder decoder, long nanos)
+	{
+		int len = src.remaining() / decoder.getBytesPerSample();
+		long wPos = writePos.get();
+		if (len > data.length - (int)(wPos - readPos.get()))
+		{
+			overruns++;
+			return false;
+		}
+		int idx = (int)(wPos & mask);
+		int firstChunk = Math.min(len, data.length - idx);
+		decoder.decode(src, data, idx, firstChunk);
+		if (firstChunk < len)
+			decoder.decode(src, data, 0, len - firstChunk);
+		writePos.lazySet(wPos + len);
+
+		long seq = stampSeq;
+		stampSeq = seq + 1;
+		stampPos = wPos + len;
+		stampNanos = nanos;
+		stampSeq = seq + 2;
+		return true;
+	}
+
+	/*
+	 * Consumer side. Fills dst with len samples, or leaves it untouched
+	 * if less than len samples are available
+	 */
+	public boolean read(float[] dst, int off, int len)
+	{
+		long rPos = readPos.get();
+		int backlog = (int)(writePos.get() - rPos);
+		if (backlog < len)
+			return false;
+		if (backlog > maxBacklog)
+			maxBacklog = backlog;
+		int idx = (int)(rPos & mask);
+		int firstChunk = Math.min(len, data.length - idx);
+		System.arraycopy(data, idx, dst, off, firstChunk);
+		if (firstChunk < len)
+			System.arraycopy(data, 0, dst, off + firstChunk, len - firstChunk);
+		readPos.lazySet(rPos + len);
+		return true;
+	}
+
+	// consumer side. Position just after the last sample read, counted from the creation of the ring
+	public long getReadPosition()
+	{
+		return readPos.get();
+	}
+
+	/*
+	 * Consumer side. Capture time, on the System.nanoTime() clock, of the sample before pos.
+	 * It is taken from the last write and the sample rate of the stream (times the channels)
+	 */
+	public long captureNanos(long pos, double samplesPerSecond)
+	{
+		long seq, sPos, sNanos;
+		do {
+			seq = stampSeq;
+			sPos = stampPos;
+			sNanos = stampNanos;
+		} while ((seq & 1) != 0 || seq != stampSeq);
+		return sNanos - (long)((sPos - pos) * 1e9 / samplesPerSecond);
+	}
+
+	// number of producer buffers dropped because the consumer was too slow
+	public long getOverruns()
+	{
+		return overruns;
+	}
+
+	// most samples found waiting by a successful read(). Close to capacity() means the consumer is falling behind
+	public int getMaxBacklog()
+	{
+		return maxBacklog;
+	}
+
+	/*
+	 * Discards pending samples and zeroes the counters.
+	 * Only safe when neither side is running
+	 */
+	public void reset()
+	{
+		readPos.set(writePos.get());
+		overruns = 0;
+		maxBacklog = 0;
+	}
+}
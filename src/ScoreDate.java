@@ -49,6 +49,8 @@ import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
+import org.jpab.DeviceRegistry;
+
 /**
  * @author Massimo Callegari
  * @email massimocallegari@yahoo.it
@@ -94,6 +96,8 @@ public class ScoreDate extends JFrame implements ActionListener
      private static int EARTRAINING = 6;
      
      private int transposition = 0;
+     private MidiEventBus midiBus = new MidiEventBus(); // delivers input notes to the game on screen
+     private RealTimeScheduler gameClock = new RealTimeScheduler(); // plays metronome and playback for every game
 
 	 public ScoreDate() 
 	 {
@@ -115,6 +119,19 @@ public class ScoreDate extends JFrame implements ActionListener
 		 }
 
 		 this.setIconImage(new ImageIcon(getClass().getResource("/resources/sdicon.png")).getImage());
+
+		 // find out once where multi-threaded FFTs pay off on this machine, while the UI loads
+		 Thread fftCalibration = new Thread("FFTCalibration") {
+			 public void run() {
+				 long ms = ConcurrencyUtils.calibrate();
+				 System.out.println("[ScoreDate] FFT thresholds calibrated in " + ms + "ms: 2 threads above " +
+						 ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads() + ", 4 threads above " + ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads());
+			 }
+		 };
+		 fftCalibration.setDaemon(true);
+		 fftCalibration.setPriority(Thread.MIN_PRIORITY);
+		 fftCalibration.start();
+
 		 prefs = new Preferences();
 		 language = prefs.getProperty("language");
 		 // if no language is set yet, try to set the system one
@@ -155,7 +172,7 @@ public class ScoreDate extends JFrame implements ActionListener
 		 setLocationRelativeTo(null); // Center the window on the display
 		 setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // exit when frame closed
 
-		 midiControl = new MidiController(prefs);
+		 midiControl = new MidiController(prefs, gameClock);
 		 int midiError = midiControl.checkError();
 		 if (midiError == 2)
 		 {
@@ -167,7 +184,8 @@ public class ScoreDate extends JFrame implements ActionListener
       	   {
       		 SoundbankDownloader sbDown = new SoundbankDownloader();
       		 sbDown.startDownload(); // blocked here until download is finished
-      		 midiControl = new MidiController(prefs); // reload the just downloaded bank
+      		 midiControl.close();
+      		 midiControl = new MidiController(prefs, gameClock); // reload the just downloaded bank
       	   }
 		 }
 
@@ -202,6 +220,7 @@ public class ScoreDate extends JFrame implements ActionListener
          }
 
          audioControl = new AudioInputController(prefs); // TODO: AUDIO unfinished
+         audioControl.setNoteReceiver(new MidiReceiver(true)); // notes detected from audio take the MIDI input path
 
          menuBar = new SDMenuBar(bundle, prefs);
          setJMenuBar(menuBar);
@@ -248,12 +267,15 @@ public class ScoreDate extends JFrame implements ActionListener
              public void windowClosing(WindowEvent e) 
              {
                System.out.println("Score Date is going to be closed !");
+               System.out.println("MIDI input: " + midiBus.getDelayReport());
+               System.out.println("Game clock: " + gameClock.getJitterReport());
                if (midiDev != null)
 			       midiDev.close();
                midiDev = null;
                if (midiControl != null)
             	   midiControl.close();
                midiControl = null;
+               DeviceRegistry.shutdown();
                System.exit(0);
              }
          });
@@ -276,6 +298,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(inlinePanel);
 		 	 inlinePanel.setVisible(true);
 		 	 currentContext = NOTEREADING;
+		 	 midiBus.setConsumer(inlineConsumer(inlinePanel));
 		 	 inlinePanel.sBar.homeBtn.addActionListener(this);
 		 }
 		 else if (ae.getSource() == homePanel.rhythmBtn)
@@ -286,6 +309,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(rhythmPanel);
 			 rhythmPanel.setVisible(true);
 			 currentContext = RHYTHMREADING;
+			 midiBus.setConsumer(scoreConsumer(rhythmPanel));
 			 rhythmPanel.sBar.homeBtn.addActionListener(this);
 		 }
 	     else if (ae.getSource() == homePanel.scoreBtn)
@@ -296,6 +320,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(scorePanel);
 			 scorePanel.setVisible(true);
 			 currentContext = SCOREREADING;
+			 midiBus.setConsumer(scoreConsumer(scorePanel));
 			 scorePanel.sBar.homeBtn.addActionListener(this);
 		 }
 	     else if (ae.getSource() == homePanel.statsBtn)
@@ -331,6 +356,7 @@ public class ScoreDate extends JFrame implements ActionListener
 	    	 getContentPane().add(earPanel);
 	    	 earPanel.setVisible(true);
 			 currentContext = EARTRAINING;
+			 midiBus.setConsumer(earConsumer(earPanel));
 			 earPanel.sBar.homeBtn.addActionListener(this);
 	     }
 		 
@@ -343,6 +369,7 @@ public class ScoreDate extends JFrame implements ActionListener
 	    	 getContentPane().add(homePanel);
 	    	 homePanel.setVisible(true);
 	    	 currentContext = HOMEPANEL;
+	    	 midiBus.setConsumer(null);
 	     }
 	     else if (rhythmPanel != null && ae.getSource() == rhythmPanel.sBar.homeBtn)
 	     {
@@ -352,6 +379,7 @@ public class ScoreDate extends JFrame implements ActionListener
 	    	 getContentPane().add(homePanel);
 	    	 homePanel.setVisible(true);
 	    	 currentContext = HOMEPANEL;
+	    	 midiBus.setConsumer(null);
 	     }
 	     else if (scorePanel != null && ae.getSource() == scorePanel.sBar.homeBtn)
 	     {
@@ -361,6 +389,7 @@ public class ScoreDate extends JFrame implements ActionListener
 	    	 getContentPane().add(homePanel);
 	    	 homePanel.setVisible(true);
 	    	 currentContext = HOMEPANEL;
+	    	 midiBus.setConsumer(null);
 	     }
 	     else if (earPanel != null && ae.getSource() == earPanel.sBar.homeBtn)
 	     {
@@ -370,6 +399,7 @@ public class ScoreDate extends JFrame implements ActionListener
 	    	 getContentPane().add(homePanel);
 	    	 homePanel.setVisible(true);
 	    	 currentContext = HOMEPANEL;
+	    	 midiBus.setConsumer(null);
 	     }
 		 // *************************** STATISTICS PANEL BUTTON ***************************
 	     else if (statsPanel != null && ae.getSource() == statsPanel.homeBtn)
@@ -400,6 +430,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(inlinePanel);
 		 	 inlinePanel.setVisible(true);
 		 	 currentContext = NOTEREADING;
+		 	 midiBus.setConsumer(inlineConsumer(inlinePanel));
 		 	 inlinePanel.sBar.homeBtn.addActionListener(this);
 			 this.pack();
 	     }
@@ -413,6 +444,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(rhythmPanel);
 			 rhythmPanel.setVisible(true);
 			 currentContext = RHYTHMREADING;
+			 midiBus.setConsumer(scoreConsumer(rhythmPanel));
 			 rhythmPanel.sBar.homeBtn.addActionListener(this);
 			 this.pack();
 	     }
@@ -426,11 +458,41 @@ public class ScoreDate extends JFrame implements ActionListener
 			 getContentPane().add(scorePanel);
 			 scorePanel.setVisible(true);
 			 currentContext = SCOREREADING;
+			 midiBus.setConsumer(scoreConsumer(scorePanel));
 			 scorePanel.sBar.homeBtn.addActionListener(this);
 			 this.pack();
 	     }
 	 }
 	 
+	 // the game panels receive the input notes through the bus, one at a time
+
+	 private MidiEventBus.Consumer inlineConsumer(final InlinePanel panel)
+	 {
+		 return new MidiEventBus.Consumer() {
+			 public void noteEvent(int pitch, int velocity, long timestamp) {
+				 panel.noteEvent(pitch, velocity, false);
+			 }
+		 };
+	 }
+
+	 private MidiEventBus.Consumer scoreConsumer(final ScorePanel panel)
+	 {
+		 return new MidiEventBus.Consumer() {
+			 public void noteEvent(int pitch, int velocity, long timestamp) {
+				 panel.noteEvent(pitch, velocity, timestamp);
+			 }
+		 };
+	 }
+
+	 private MidiEventBus.Consumer earConsumer(final EarTrainingPanel panel)
+	 {
+		 return new MidiEventBus.Consumer() {
+			 public void noteEvent(int pitch, int velocity, long timestamp) {
+				 panel.noteEvent(pitch, velocity, false);
+			 }
+		 };
+	 }
+	 
 	 public void menuBarActionPerformed(String s)
 	 {
 		 System.out.println(s);
@@ -466,7 +528,7 @@ public class ScoreDate extends JFrame implements ActionListener
 							if (midiDev != null)
 								midiDev.close();
 							midiDev = null;
-							midiControl = new MidiController(prefs);
+							midiControl = new MidiController(prefs, gameClock);
 							if (midiControl.checkError() != 0)
 							{
 								JOptionPane.showMessageDialog(null, "<html><b>" + bundle.getString("_alertRestart") + "</b></html>",
@@ -511,6 +573,7 @@ public class ScoreDate extends JFrame implements ActionListener
 			else if (s == "exitProgram")
 			{
 				//dispose(); // why this doesn't work ??
+				DeviceRegistry.shutdown();
 				System.exit(0);
 			}
 			
@@ -586,33 +649,50 @@ public class ScoreDate extends JFrame implements ActionListener
 	    }
 	 }
 
+	 /*
+	  * Receives the notes of the MIDI input device, or of the audio input.
+	  * Device timestamps (microseconds on the device clock) are mapped onto System.nanoTime()
+	  * with the smallest offset seen between the two clocks, which is the offset of the notes
+	  * delivered without delay. Sources like AudioInputController already stamp their notes
+	  * on the System.nanoTime() clock. Notes without timestamp are stamped on arrival
+	  */
 	 private class MidiReceiver implements Receiver 
 	 {
+		boolean sourceTimestamps = false;
+		long clockOffset = Long.MAX_VALUE; // System.nanoTime() minus device time, in nanoseconds
+
         public MidiReceiver() { }
 
+        public MidiReceiver(boolean useSourceTimestamps) 
+        {
+        	sourceTimestamps = useSourceTimestamps;
+        }
+
         public void send(MidiMessage event, long time) 
         {
+        	long now = System.nanoTime();
+        	long timestamp = now;
+        	if (time >= 0 && sourceTimestamps == true)
+        		timestamp = time * 1000;
+        	else if (time >= 0)
+        	{
+        		long offset = now - time * 1000;
+        		// the offset creeps up slowly, so that clock drift and device restarts are followed
+        		if (offset < clockOffset || offset - clockOffset > 20000000L)
+        			clockOffset = offset;
+        		else
+        			clockOffset += 1000;
+        		timestamp = time * 1000 + clockOffset;
+        	}
         	if (event instanceof ShortMessage) 
         	{
         		switch (event.getStatus()&0xf0) 
         		{
                   case 0x90:
+                	  // runs on the driver thread: only queue the note, the game gets it from the bus
                 	  int pitch = ((ShortMessage)event).getData1();
                 	  int vel = ((ShortMessage)event).getData2();
-                	  pitch += transposition;
-                	  if (vel == 0)
-                		  System.out.println("   Key released - Pitch: "+ pitch);
-                	  else
-                		  System.out.println("   Key pressed - Pitch: "+ pitch + " Velocity: " + vel);
-
-                	  if (inlinePanel != null && inlinePanel.isVisible() == true)
-                		  inlinePanel.noteEvent(pitch, vel, false);
-                	  else if (rhythmPanel != null && rhythmPanel.isVisible() == true)
-                		  rhythmPanel.noteEvent(pitch, vel);
-                	  else if (scorePanel != null &&  scorePanel.isVisible() == true)
-                		  scorePanel.noteEvent(pitch, vel);
-                	  else if (earPanel != null &&  earPanel.isVisible() == true)
-                		  earPanel.noteEvent(pitch, vel, false);
+                	  midiBus.post(pitch + transposition, vel, timestamp);
                   break;
 /*
                   case 0x80:
@@ -20,6 +20,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
@@ -28,16 +29,14 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ResourceBundle;
 import java.util.Vector;
-
-import javax.sound.midi.MetaEventListener;
-import javax.sound.midi.MetaMessage;
-import javax.sound.midi.Sequencer;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.ImageIcon;
 import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 
 public class ScorePanel extends JPanel implements ActionListener, KeyListener
@@ -78,28 +77,31 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 	private int timeDenominator = 4;
 	private int timeDivision = 1;
 
-	// MIDI controllers
-	private Sequencer metronome;
-	private Sequencer playback;
-	
 	// Game variables
 	private ScoreGameThread gameThread = null;
 	private boolean gameStarted = false; // variable to control thread job
 	private int gameType = -1; // type of game. See prefernces for values
-	private long startTime; // timestamp of cursor at the beginning of a row
+	private final AtomicReference<CursorRow> cursorRow = new AtomicReference<CursorRow>(); // row the cursor runs on. null when stopped
+	private double pixelsPerMs = 0; // cursor speed. Set before the first row is published
+	private int firstRowX = 0; // X where the cursor starts. Set with pixelsPerMs
 	private int currentNoteIndex = -1; // index of the currently playing note (first clef)
 	private int currentNote2Index = -1; // index of the currently playing note (second clef)
-	private int cursorStartX; // X start position of cursor for each row
 	private int cursorX; // X position of cursor during game
 	private int cursorY; // Y position of cursor during game
 	private boolean isKeyPressed = false;
 	
 	// Variables to check notes validity
 	private int accuracy = 24; // a note is valid within 24 pixels around the note X position 
+	private double[] timingOffsets = new double[0]; // early (negative) or late (positive) ms of each note found
+	private int timingCount = 0;
 	//private int releaseXpos; // on key press, save the release X position for key release check
 	
 	private boolean exerciseMode = false;
 	private Exercise currEx = null;
+
+	// play button images, loaded once: the clock thread must not do it
+	private final Image playbackImage = new ImageIcon(getClass().getResource("/resources/playback.png")).getImage();
+	private final Image stopImage = new ImageIcon(getClass().getResource("/resources/stop.png")).getImage();
 	
 	public ScorePanel(Font f, ResourceBundle b, Preferences p, MidiController mc, Dimension d, boolean rhythm)
 	{
@@ -283,7 +285,8 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		gameBar.scoreCnt.setText(Integer.toString(stats.getTotalScore()));
 	}
 	
-	private void gameFinished()
+	// shows the results of a game of the given type. Runs on the Swing thread
+	private void gameFinished(int finishedType)
 	{
 		String title;
 		int type = 0;
@@ -291,6 +294,18 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		int wrong = stats.getWrongNumber();
 		int rhythms = stats.getWrongRhythms();
 		
+		if (timingCount > 0)
+		{
+			double sum = 0, absSum = 0;
+			for (int i = 0; i < timingCount; i++)
+			{
+				sum += timingOffsets[i];
+				absSum += Math.abs(timingOffsets[i]);
+			}
+			System.out.println("[ScorePanel] timing of " + timingCount + " notes: mean " + Math.round(sum / timingCount) + 
+							   "ms, mean absolute " + Math.round(absSum / timingCount) + "ms (negative is early)");
+		}
+
 		if (wrong == 0 && correct > 0)
 		{
 			title = appBundle.getString("_congratulations");
@@ -315,14 +330,15 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		
 		if (Integer.parseInt(appPrefs.getProperty("saveStats")) == 1)
 		{
-			if (gameType == appPrefs.RHTYHM_GAME_USER)
+			if (finishedType == appPrefs.RHTYHM_GAME_USER)
 				stats.storeData(1);
-			else if (gameType == appPrefs.SCORE_GAME_USER)
+			else if (finishedType == appPrefs.SCORE_GAME_USER)
 				stats.storeData(2);
 		}
 	}
 	
-	private void checkNote(int cursorPos, int pitch, boolean press)
+	// row is where the note was played, null if the cursor was not running
+	private void checkNote(CursorRow row, int cursorPos, int pitch, boolean press)
 	{
 		int delta1 = -1, delta2 = -1;
 		if (currentNoteIndex < 0 || currentNoteIndex >= gameNotes.size())
@@ -332,24 +348,21 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		if (gameNotes2.size() > 0 && currentNote2Index != -1)
 			delta2 = Math.abs(pitch - gameNotes2.get(currentNote2Index).pitch);
 		if (delta2 == -1 || delta1 < delta2)
-			checkAnswer(cursorPos, currentNoteIndex, gameNotes, pitch, press, false);
+			checkAnswer(row, cursorPos, currentNoteIndex, gameNotes, pitch, press, false);
 		else
-			checkAnswer(cursorPos, currentNote2Index, gameNotes2, pitch, press, true);
+			checkAnswer(row, cursorPos, currentNote2Index, gameNotes2, pitch, press, true);
 	}
 
-	private void checkAnswer(int cursorPos, int noteIdx, Vector<Note> n, int pitch, boolean press, boolean secondClef)
+	private void checkAnswer(CursorRow row, int cursorPos, int noteIdx, Vector<Note> n, int pitch, boolean press, boolean secondClef)
 	{
 		if (noteIdx < 0 || noteIdx >= n.size())
 			return;
 		
-		int answerY = cursorY;
+		int answerY = row != null ? row.y : cursorY;
+		int rowStartX = row != null ? row.startX : cursorX;
 		if (secondClef == true)
 			answerY += rowsDistance / 2;
 
-		// adjust X position if latency is on
-		if (latency > 0)
-			cursorPos -= ((staffLayer.getNotesDistance() * latency) / (60000 / currentSpeed));
-
 		if (press == true) // check key press
 		{
 			if (n.size() == 0) return; // security check
@@ -382,6 +395,7 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 			else
 			{
 				if (n.size() == 0) return; // security check
+				recordTiming(cursorPos - n.get(lookupIndex).xpos);
 
 				if ((pitch == n.get(lookupIndex).pitch || 
 					gameType == appPrefs.RHTYHM_GAME_USER) && // any pitch is OK for rhythm game 
@@ -413,7 +427,7 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 			System.out.println("[checkNote *release*] cursorPos: " +  cursorPos + 
 						", noteXpos: " + n.get(idx).xpos + ", releaseXpos: " + releaseXpos);
 			 
-			if (((cursorPos < releaseXpos - (accuracy * 2) && cursorPos > cursorStartX + accuracy) || cursorPos > releaseXpos) && 
+			if (((cursorPos < releaseXpos - (accuracy * 2) && cursorPos > rowStartX + accuracy) || cursorPos > releaseXpos) && 
 				  cursorPos > n.get(idx).xpos + accuracy)
 			//if (cursorPos < releaseXpos - (accuracy * 2) || cursorPos > releaseXpos)
 			{
@@ -424,104 +438,179 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 	}
 
 	public void noteEvent(int pitch, int velocity)
+	{
+		noteEvent(pitch, velocity, System.nanoTime());
+	}
+
+	/*
+	 * timestamp is the System.nanoTime() of the note at its source (see MidiEventBus).
+	 * The note is judged where the cursor was at that time, not where it is now
+	 */
+	public void noteEvent(int pitch, int velocity, long timestamp)
 	{
 		if (gameType != appPrefs.SCORE_GAME_LISTEN)
 		{
+			long t = timestamp - latency * 1000000L;
+			CursorRow row = cursorRowAt(t);
+			int cursorPos = row != null ? row.position(t, pixelsPerMs) : cursorX;
 			if (velocity != 0)
 			{
 				appMidi.playNote(pitch, 90);
-				checkNote(cursorX, pitch, true);
+				checkNote(row, cursorPos, pitch, true);
 			}
 			else
 			{
 				appMidi.stopNote(pitch, 0);
-				checkNote(cursorX, pitch, false);
+				checkNote(row, cursorPos, pitch, false);
 			}			
 		}
 	}
 
-	private void handleAsyncMIDIevent(MetaMessage msg)
+	/*
+	 * The row the cursor was on at time t, or null if it is not running.
+	 * A note played just before the cursor wrapped may arrive after the wrap: it belongs to the previous row
+	 */
+	private CursorRow cursorRowAt(long t)
 	{
-		byte[] metaData = msg.getData();
-        String strData = new String(metaData);
-       
-        //System.out.println("*SCOREPANEL* META message: text= " + strData);
-
-        if ("beat".equals(strData)) 
-        {
-        	if (gameType != appPrefs.SCORE_GAME_LISTEN && sBar.metronomeCheckBox.isSelected() == true)
-        		answersLayer.drawMetronome(cursorX, cursorY);
-        }
-        else if ("gameOn".equals(strData))
-        {
-        	// this is a workaround
-        	answersLayer.drawCursor(cursorX, cursorY, true);
-        }
-        else if ("cursorOn".equals(strData))
-        {
-        	cursorStartX = staffLayer.getFirstNoteXPosition() - staffLayer.getNotesDistance();
-        	cursorX = cursorStartX;
-        	cursorY = 10;
-        	startTime = System.currentTimeMillis();
-        }
-        else if ("nOn".equals(strData))
-        {
-        	if (gameType == appPrefs.SCORE_GAME_LISTEN)
-        	{
-        		notesLayer.highlightNote(currentNoteIndex, 1, true);
-	        	if (scoreScrollPanel.getVerticalScrollBar().isVisible() == true)
-	        	{
-	        		int scrollAmount = scoreScrollPanel.getVerticalScrollBar().getMaximum() + rowsDistance - scoreScrollPanel.getVerticalScrollBar().getVisibleAmount();
-	        		int newPos = (scrollAmount * ((currentNoteIndex * 100) / gameNotes.size())) / 100;
-	        		//System.out.println("Scrollbar amount: " + newPos);
-	        		scoreScrollPanel.getVerticalScrollBar().setValue(newPos);
-	        	}
-        	}
-        }
-        else if ("nOff".equals(strData))
-        {
-        	if (gameType == appPrefs.SCORE_GAME_LISTEN)
-        		notesLayer.highlightNote(currentNoteIndex, 1, false);
-        	currentNoteIndex++;
-        	gameBar.progress.setValue((currentNoteIndex * 100) / gameNotes.size());
-        }
-        else if ("n2On".equals(strData))
-        {
-        	if (gameType == appPrefs.SCORE_GAME_LISTEN)
-        	{
-        		notesLayer.highlightNote(currentNote2Index, 2, true);
-	        	if (scoreScrollPanel.getVerticalScrollBar().isVisible() == true)
-	        	{
-	        		int scrollAmount = scoreScrollPanel.getVerticalScrollBar().getMaximum() + rowsDistance - scoreScrollPanel.getVerticalScrollBar().getVisibleAmount();
-	        		int newPos = (scrollAmount * ((currentNoteIndex * 100) / gameNotes.size())) / 100;
-	        		//System.out.println("Scrollbar amount: " + newPos);
-	        		scoreScrollPanel.getVerticalScrollBar().setValue(newPos);
-	        	}
-        	}
-        }
-        else if ("n2Off".equals(strData))
-        {
-        	if (gameType == appPrefs.SCORE_GAME_LISTEN)
-        		notesLayer.highlightNote(currentNote2Index, 2, false);
-        	currentNote2Index++;
-        	gameBar.progress.setValue((currentNoteIndex * 100) / gameNotes.size());
-        }
-        else if ("end".equals(strData))
-        {
-        	gameStarted = false;
-        	if (gameType == appPrefs.SCORE_GAME_LISTEN)
-        		appMidi.stopPlayback();
-        	appMidi.stopMetronome();
-			sBar.playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
-			sBar.playBtn.repaint();
-			startTime = 0;
-			answersLayer.drawCursor(cursorX, cursorY, true);
-			if (gameType != appPrefs.SCORE_GAME_LISTEN)
-				gameFinished();
-			gameType = appPrefs.GAME_STOPPED;
-			currentNoteIndex = -1;
-			currentNote2Index = -1;
-        }
+		CursorRow row = cursorRow.get();
+		if (row != null && t < row.startTime && row.previous != null)
+			return row.previous;
+		return row;
+	}
+
+	// offset is in pixels from the note position. Positive means late
+	private void recordTiming(int offset)
+	{
+		if (pixelsPerMs <= 0)
+			return;
+		if (timingCount == timingOffsets.length)
+		{
+			double[] tmp = new double[Math.max(64, timingCount * 2)];
+			System.arraycopy(timingOffsets, 0, tmp, 0, timingCount);
+			timingOffsets = tmp;
+		}
+		timingOffsets[timingCount++] = offset / pixelsPerMs;
+	}
+
+	/*
+	 * Early (negative) or late (positive) milliseconds of every note found
+	 * in the last game, in playing order
+	 */
+	public double[] getTimingOffsets()
+	{
+		double[] offsets = new double[timingCount];
+		System.arraycopy(timingOffsets, 0, offsets, 0, timingCount);
+		return offsets;
+	}
+
+	/*
+	 * Events of the metronome and playback timelines, on the game clock thread.
+	 * time is the scheduled System.nanoTime() of the event
+	 */
+	private void handleTimelineEvent(final int opcode, final int arg, long time)
+	{
+		// game state first: notes are judged against it as soon as they arrive
+		final int type = gameType;
+		switch (opcode)
+		{
+			case TimelineEvent.CURSOR_ON:
+				cursorX = firstRowX;
+				cursorY = 10;
+				cursorRow.set(new CursorRow(time, cursorX, cursorY, null));
+			return; // nothing to draw
+			case TimelineEvent.NOTE_ON:
+				currentNoteIndex = arg;
+			break;
+			case TimelineEvent.NOTE_OFF:
+				currentNoteIndex = arg + 1;
+			break;
+			case TimelineEvent.NOTE2_ON:
+				currentNote2Index = arg;
+			break;
+			case TimelineEvent.NOTE2_OFF:
+				currentNote2Index = arg + 1;
+			break;
+			case TimelineEvent.END:
+				gameStarted = false;
+				if (type == appPrefs.SCORE_GAME_LISTEN)
+					appMidi.stopPlayback();
+				appMidi.stopMetronome();
+				cursorRow.set(null);
+				gameType = appPrefs.GAME_STOPPED;
+				currentNoteIndex = -1;
+				currentNote2Index = -1;
+			break;
+			case TimelineEvent.BEAT:
+			case TimelineEvent.GAME_ON:
+			break;
+			default:
+			return; // sound events, played by MidiController
+		}
+
+		// drawing belongs to the Swing thread, with the values of this event
+		final int x = cursorX, y = cursorY;
+		final int noteIndex = opcode == TimelineEvent.END ? -1 : currentNoteIndex;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run()
+			{
+				showTimelineEvent(opcode, arg, type, noteIndex, x, y);
+			}
+		});
+	}
+
+	// Swing side of handleTimelineEvent. type is the game type when the event was played
+	private void showTimelineEvent(int opcode, int arg, int type, int noteIndex, int x, int y)
+	{
+		switch (opcode)
+		{
+			case TimelineEvent.BEAT:
+				if (type != appPrefs.SCORE_GAME_LISTEN && sBar.metronomeCheckBox.isSelected() == true)
+					answersLayer.drawMetronome(x, y);
+			break;
+			case TimelineEvent.GAME_ON:
+				// this is a workaround
+				answersLayer.drawCursor(x, y, true);
+			break;
+			case TimelineEvent.NOTE_ON:
+				if (type == appPrefs.SCORE_GAME_LISTEN)
+				{
+					notesLayer.highlightNote(arg, 1, true);
+					scrollToCurrentNote();
+				}
+			break;
+			case TimelineEvent.NOTE_OFF:
+			case TimelineEvent.NOTE2_OFF:
+				if (type == appPrefs.SCORE_GAME_LISTEN)
+					notesLayer.highlightNote(arg, opcode == TimelineEvent.NOTE_OFF ? 1 : 2, false);
+				gameBar.progress.setValue((noteIndex * 100) / gameNotes.size());
+			break;
+			case TimelineEvent.NOTE2_ON:
+				if (type == appPrefs.SCORE_GAME_LISTEN)
+				{
+					notesLayer.highlightNote(arg, 2, true);
+					scrollToCurrentNote();
+				}
+			break;
+			case TimelineEvent.END:
+				sBar.playBtn.setButtonImage(playbackImage);
+				sBar.playBtn.repaint();
+				answersLayer.drawCursor(x, y, true);
+				if (type != appPrefs.SCORE_GAME_LISTEN)
+					gameFinished(type);
+			break;
+		}
+	}
+
+	// the scroll position follows the first row, on both rows
+	private void scrollToCurrentNote()
+	{
+		if (scoreScrollPanel.getVerticalScrollBar().isVisible() == true)
+		{
+			int scrollAmount = scoreScrollPanel.getVerticalScrollBar().getMaximum() + rowsDistance - scoreScrollPanel.getVerticalScrollBar().getVisibleAmount();
+			int newPos = (scrollAmount * ((currentNoteIndex * 100) / gameNotes.size())) / 100;
+			//System.out.println("Scrollbar amount: " + newPos);
+			scoreScrollPanel.getVerticalScrollBar().setValue(newPos);
+		}
 	}
 	
 	 /** Handle the key typed event from the text field. */
@@ -548,38 +637,33 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 
 	private void createPlayback(boolean playOnly)
 	{
-		sBar.playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/stop.png")).getImage());
+		sBar.playBtn.setButtonImage(stopImage);
 		sBar.playBtn.repaint();
 		currentSpeed = sBar.tempoSlider.getValue();
-		metronome = appMidi.createMetronome(appPrefs, currentSpeed, staffLayer.getMeasuresNumber(), timeNumerator, timeDivision);
-		metronome.addMetaEventListener(new MetaEventListener() {
-            public void meta(MetaMessage meta) 
-            {
-            	handleAsyncMIDIevent(meta);
-            }
-		});
+		// the cursor geometry is read here, on the Swing thread, and used by the clock thread
+		firstRowX = staffLayer.getFirstNoteXPosition() - staffLayer.getNotesDistance();
+		pixelsPerMs = (double)(staffLayer.getNotesDistance() * timeDivision) / (60000 / currentSpeed);
+		appMidi.createMetronome(appPrefs, currentSpeed, staffLayer.getMeasuresNumber(), timeNumerator, timeDivision);
 		if (gameNotes2.size() > 0)
 		{
 			// on double clef, create a single sequence for playback
 			Vector<Note> tmpSequence = new Vector<Note>(); 
 			tmpSequence.addAll(gameNotes);
 			tmpSequence.addAll(gameNotes2);
-			playback = appMidi.createPlayback(appPrefs, currentSpeed, tmpSequence, timeDivision, playOnly, timeNumerator);
+			appMidi.createPlayback(appPrefs, currentSpeed, tmpSequence, timeDivision, playOnly, timeNumerator);
 		}
 		else
-			playback = appMidi.createPlayback(appPrefs, currentSpeed, gameNotes, timeDivision, playOnly, timeNumerator);
-
-		playback.addMetaEventListener(new MetaEventListener() {
-          public void meta(MetaMessage meta) 
-          {
-          	handleAsyncMIDIevent(meta);
-          }
-		});
+			appMidi.createPlayback(appPrefs, currentSpeed, gameNotes, timeDivision, playOnly, timeNumerator);
 		
 		currentNoteIndex = 0;
 		currentNote2Index = 0;
-		metronome.start();
-		playback.start();
+		// metronome and playback start together on the game clock
+		appMidi.startTimelines(new RealTimeScheduler.Listener() {
+			public void timelineEvent(int opcode, int arg, long time)
+			{
+				handleTimelineEvent(opcode, arg, time);
+			}
+		});
 	}
 	
 	public void stopGame()
@@ -597,7 +681,7 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		}
 		gameBar.scoreCnt.setText("");
 		gameBar.progress.setValue(0);
-		sBar.playBtn.setButtonImage(new ImageIcon(getClass().getResource("/resources/playback.png")).getImage());
+		sBar.playBtn.setButtonImage(playbackImage);
 		sBar.playBtn.repaint();
 		gameStarted = false;
 		gameType = appPrefs.GAME_STOPPED;
@@ -634,10 +718,11 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 				gameBar.scoreCnt.setText("");
 				gameBar.progress.setValue(0);
 				stats.reset();
+				timingCount = 0;
 				gameThread = new ScoreGameThread();
 				gameStarted = true;
 				cursorX = cursorY = 0; 
-				startTime = 0;
+				cursorRow.set(null);
 				createPlayback(false);
 				stats.setGameSpeed(currentSpeed);
 				gameThread.start();
@@ -694,9 +779,36 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 		*/
 	}
 	
+	/*
+	 * Where and when the cursor started a row. Immutable and published as a whole, so that
+	 * the note threads never see the start time of one row with the start X of another
+	 */
+	private static final class CursorRow
+	{
+		final long startTime; // System.nanoTime() of the cursor at startX
+		final int startX;
+		final int y;
+		final CursorRow previous; // the row before, without its own previous. null on the first row
+
+		CursorRow(long time, int x, int rowY, CursorRow before)
+		{
+			startTime = time;
+			startX = x;
+			y = rowY;
+			if (before != null && before.previous != null)
+				before = new CursorRow(before.startTime, before.startX, before.y, null);
+			previous = before;
+		}
+
+		// X position of the cursor at time t. Exact to the pixel, whatever the refresh rate of the cursor
+		int position(long t, double pixelsPerMs)
+		{
+			return startX + (int)Math.round((t - startTime) * pixelsPerMs / 1000000.0);
+		}
+	}
+
 	private class ScoreGameThread extends Thread 
 	{
-		int noteDistance = staffLayer.getNotesDistance();
 		//int beatsPerRow = (staffLayer.getWidth() - staffLayer.getFirstNoteXPosition()) / noteDistance;
 		int cursorXlimit = staffLayer.getStaffWidth();
 		//int scrollAmount = scoreScrollPanel.getVerticalScrollBar().getMaximum() - scoreScrollPanel.getVerticalScrollBar().getVisibleAmount();
@@ -715,18 +827,22 @@ public class ScorePanel extends JPanel implements ActionListener, KeyListener
 			{
 				try
 				{
-					if (startTime != 0)
+					CursorRow row = cursorRow.get();
+					if (row != null)
 					{
-						cursorX = cursorStartX + ((int)(System.currentTimeMillis() - startTime) * (noteDistance*timeDivision))/(60000 / currentSpeed);
-						answersLayer.drawCursor(cursorX, cursorY, false);
+						cursorX = row.position(System.nanoTime(), pixelsPerMs);
+						answersLayer.drawCursor(cursorX, row.y, false);
 
 						if (cursorX >= cursorXlimit)
 						{
-							answersLayer.drawCursor(cursorX, cursorY, true);
-							cursorY+=rowsDistance;
-							cursorStartX = staffLayer.getFirstNoteXPosition() - 10;
-							cursorX = cursorStartX;
-							startTime = System.currentTimeMillis();
+							answersLayer.drawCursor(cursorX, row.y, true);
+							// the next row starts when the cursor crossed the limit, not when this loop noticed it
+							long rowEnd = row.startTime + (long)((cursorXlimit - row.startX) * 1000000.0 / pixelsPerMs);
+							CursorRow next = new CursorRow(rowEnd, staffLayer.getFirstNoteXPosition() - 10, row.y + rowsDistance, row);
+							if (cursorRow.compareAndSet(row, next) == false)
+								continue; // the game ended meanwhile
+							cursorX = next.startX;
+							cursorY = next.y;
 							if (cursorY > 10 + rowsDistance)
 							{
 								//System.out.println("Scrollbar min: " + scoreScrollPanel.getVerticalScrollBar().getMinimum() + ", max: "
@@ -0,0 +1,190 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Hands the analysis results over to the audio monitor without ever making the analysis wait.
+ *
+ * The analysis thread reduces each spectrum to BANDS logarithmically spaced bands,
+ * quantized to LEVELS steps, and publishes them together with volume and pitch.
+ * The bin to band mapping and the level thresholds are computed once per FFT size,
+ * so publishing costs one pass over the bins below MAX_FREQ, a binary search per band and no allocation.
+ *
+ * Frames are exchanged through three fixed buffers: the analysis thread fills the back one,
+ * the UI reads the front one, and they swap with the middle one through a single atomic exchange.
+ * Neither side ever blocks and the UI always gets the latest complete frame.
+ * Exactly one thread may publish and exactly one thread may pull.
+ */
+public class SpectrumSnapshot
+{
+	public static final int BANDS = 16;
+	public static final int LEVELS = 64;
+	public static final double MIN_FREQ = 62.5;
+	public static final double MAX_FREQ = 2000;
+	public static final double FLOOR_DB = -72; // level 0. Level LEVELS is a full scale sine
+
+	private static final int INDEX = 3;
+	private static final int FRESH = 4; // set in middle when it holds a frame not pulled yet
+
+	public static class Frame
+	{
+		public final int[] bands = new int[BANDS]; // 0 to LEVELS
+		public int volume = 0;  // 0 to 127
+		public int pitch = 0;   // MIDI pitch, 0 when none
+		public double cents = 0;
+		public long sequence = 0;
+	}
+
+	private final Frame[] frames = { new Frame(), new Frame(), new Frame() };
+	private final AtomicInteger middle = new AtomicInteger(2);
+	private int back = 0;  // owned by the publisher
+	private int front = 1; // owned by the puller
+
+	// publisher state, copied into the back frame by publish()
+	private final int[] bands = new int[BANDS];
+	private int volume = 0;
+	private int pitch = 0;
+	private double cents = 0;
+	private long sequence = 0;
+
+	// precomputed for the current FFT size and sample rate
+	private int bins = 0;
+	private float sampleRate = 0;
+	private int[] bandEdges = null;    // band b covers bins bandEdges[b] to bandEdges[b + 1] - 1
+	private double[] bandScale = null; // 1 / number of bins in the band
+	private double[] thresholds = null; // band power of each level, ascending
+
+	/*
+	 * Recomputes the band edges and the level thresholds for magnitude arrays of numBins values
+	 * (half the FFT size). Called by setSpectrum() when the size or the rate change
+	 */
+	public void configure(int numBins, float rate)
+	{
+		bins = numBins;
+		sampleRate = rate;
+		double binWidth = rate / (2.0 * numBins);
+		bandEdges = new int[BANDS + 1];
+		bandScale = new double[BANDS];
+		double ratio = Math.pow(MAX_FREQ / MIN_FREQ, 1.0 / BANDS);
+		double freq = MIN_FREQ;
+		bandEdges[0] = Math.max(1, (int)Math.round(MIN_FREQ / binWidth)); // skip DC
+		for (int b = 1; b <= BANDS; b++)
+		{
+			freq *= ratio;
+			// every band gets at least one bin, even when low bands are narrower than a bin
+			bandEdges[b] = Math.max(bandEdges[b - 1] + 1, (int)Math.round(freq / binWidth));
+		}
+		for (int b = 0; b < BANDS; b++)
+		{
+			if (bandEdges[b + 1] > numBins)
+				bandEdges[b + 1] = Math.max(bandEdges[b], numBins);
+			int count = bandEdges[b + 1] - bandEdges[b];
+			bandScale[b] = count > 0 ? 1.0 / count : 0;
+		}
+
+		// a full scale sine gives a magnitude of about numBins in its bin
+		double fullScale = (double)numBins * numBins;
+		thresholds = new double[LEVELS];
+		for (int l = 0; l < LEVELS; l++)
+			thresholds[l] = fullScale * Math.pow(10, (FLOOR_DB - FLOOR_DB * (l + 1) / LEVELS) / 10);
+	}
+
+	/*
+	 * Publisher side. Reduces magnitude to band levels.
+	 * Allocates only when the spectrum size or the sample rate change
+	 */
+	public void setSpectrum(float[] magnitude, float rate)
+	{
+		if (magnitude.length != bins || rate != sampleRate)
+			configure(magnitude.length, rate);
+		for (int b = 0; b < BANDS; b++)
+		{
+			double power = 0;
+			for (int i = bandEdges[b]; i < bandEdges[b + 1]; i++)
+				power += magnitude[i] * magnitude[i];
+			bands[b] = level(power * bandScale[b]);
+		}
+	}
+
+	public void setVolume(int vol)
+	{
+		volume = vol;
+	}
+
+	public void setPitch(int p, double c)
+	{
+		pitch = p;
+		cents = c;
+	}
+
+	// publisher side. Makes the current values visible to pull()
+	public void publish()
+	{
+		Frame f = frames[back];
+		System.arraycopy(bands, 0, f.bands, 0, BANDS);
+		f.volume = volume;
+		f.pitch = pitch;
+		f.cents = cents;
+		f.sequence = ++sequence;
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/*
+	 * UI side. Returns the latest published frame, which stays valid until the next call.
+	 * Call isFresh() first to know if there is anything new
+	 */
+	public Frame pull()
+	{
+		if ((middle.get() & FRESH) != 0)
+			front = middle.getAndSet(front) & INDEX;
+		return frames[front];
+	}
+
+	public boolean isFresh()
+	{
+		return (middle.get() & FRESH) != 0;
+	}
+
+	// forgets the published values, so that the monitor shows silence. Publisher side
+	public void clear()
+	{
+		for (int b = 0; b < BANDS; b++)
+			bands[b] = 0;
+		volume = 0;
+		pitch = 0;
+		cents = 0;
+		publish();
+	}
+
+	// number of thresholds below power
+	private int level(double power)
+	{
+		int lo = 0, hi = LEVELS;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (thresholds[mid] <= power)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
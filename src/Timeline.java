@@ -0,0 +1,123 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/*
+ * Precompiled list of TimelineEvent opcodes for RealTimeScheduler.
+ * Times are nanoseconds from the start of the game, already converted from beats
+ * with the tempo of the timeline, so the scheduler only compares longs.
+ * Events are added in any order and sorted once by compile(): events with the
+ * same time keep the order in which they were added.
+ */
+public class Timeline
+{
+	private long[] times;
+	private int[] opcodes;
+	private int[] args;
+	private int count = 0;
+
+	public Timeline()
+	{
+		this(64);
+	}
+
+	public Timeline(int capacity)
+	{
+		if (capacity < 1)
+			capacity = 1;
+		times = new long[capacity];
+		opcodes = new int[capacity];
+		args = new int[capacity];
+	}
+
+	public void add(long nanos, int opcode, int arg)
+	{
+		if (count == times.length)
+		{
+			times = Arrays.copyOf(times, count * 2);
+			opcodes = Arrays.copyOf(opcodes, count * 2);
+			args = Arrays.copyOf(args, count * 2);
+		}
+		times[count] = nanos;
+		opcodes[count] = opcode;
+		args[count] = arg;
+		count++;
+	}
+
+	// sorts the events by time. Must be called once all the events have been added
+	public void compile()
+	{
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		// object sort is stable
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				long ta = times[a], tb = times[b];
+				return ta < tb ? -1 : (ta > tb ? 1 : 0);
+			}
+		});
+
+		long[] sTimes = new long[count];
+		int[] sOpcodes = new int[count];
+		int[] sArgs = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			sTimes[i] = times[order[i]];
+			sOpcodes[i] = opcodes[order[i]];
+			sArgs[i] = args[order[i]];
+		}
+		times = sTimes;
+		opcodes = sOpcodes;
+		args = sArgs;
+	}
+
+	public int size()
+	{
+		return count;
+	}
+
+	public long getTime(int i)
+	{
+		return times[i];
+	}
+
+	public int getOpcode(int i)
+	{
+		return opcodes[i];
+	}
+
+	public int getArg(int i)
+	{
+		return args[i];
+	}
+
+	// time of the last event
+	public long getDuration()
+	{
+		long max = 0;
+		for (int i = 0; i < count; i++)
+			if (times[i] > max)
+				max = times[i];
+		return max;
+	}
+}
@@ -0,0 +1,47 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+/*
+ * Opcodes of the precompiled game timelines played by RealTimeScheduler.
+ * Every event is just an int opcode and an int argument, so listeners dispatch
+ * with a switch on primitives: nothing is decoded, copied or allocated while the game runs.
+ *
+ * The argument is the note index inside its row for the NOTE events,
+ * the MIDI pitch for the sound events and 0 otherwise.
+ */
+public class TimelineEvent
+{
+	// game events
+	public static final int GAME_ON        = 1; // first beat
+	public static final int CURSOR_ON      = 2; // one beat before the first note
+	public static final int BEAT           = 3; // metronome beat, after the count in
+	public static final int NOTE_ON        = 4; // first row
+	public static final int NOTE_OFF       = 5;
+	public static final int NOTE2_ON       = 6; // second row
+	public static final int NOTE2_OFF      = 7;
+	public static final int END            = 8;
+	// sound events, played by MidiController on the Java synthesizer or on Fluidsynth
+	public static final int PLAY_NOTE_ON   = 9;
+	public static final int PLAY_NOTE_OFF  = 10;
+	public static final int CLICK_ON       = 11;
+	public static final int CLICK_OFF      = 12;
+
+	private TimelineEvent()
+	{
+	}
+}
@@ -0,0 +1,273 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Records captured audio into a RIFF/WAV file without blocking the caller.
+ * write() only copies the samples into a lock-free ring buffer. A background
+ * thread drains it in large batches through a single FileChannel and patches
+ * the RIFF and data sizes in the header every second, so the file is
+ * valid even if the application dies while recording.
+ * write() must always be called from the same thread.
+ */
+public class WavRecorder
+{
+	private static final int HEADER_SIZE = 44;
+	private static final long HEADER_PATCH_INTERVAL = 1000000000L; // ns
+
+	private final AudioRingBuffer ring;
+	private final byte[] batch;
+	private final ByteBuffer batchBuffer;
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	private FileChannel channel = null;
+	private RandomAccessFile raFile = null;
+	private int sampleRate;
+	private int sampleSizeInBits;
+	private int channels;
+	private boolean floatSamples;
+	private ByteOrder sourceOrder;
+
+	private volatile boolean recording = false;
+	private Thread writerThread = null;
+	private long dataBytes = 0;
+	private volatile IOException error = null; // set by the writer thread, read by the UI
+
+	/*
+	 * bufferBytes is the capacity of the ring between the audio thread and the writer.
+	 * A second of audio is plenty: the writer drains it many times per second
+	 */
+	public WavRecorder(int bufferBytes)
+	{
+		ring = new AudioRingBuffer(bufferBytes);
+		batch = new byte[ring.capacity()];
+		batchBuffer = ByteBuffer.wrap(batch);
+	}
+
+	/*
+	 * Creates (or truncates) the file and starts the writer thread.
+	 * Samples are expected in the native byte order, as PortAudio delivers them.
+	 * 8 bit samples are expected signed and converted to the unsigned WAV format
+	 */
+	public void start(File file, int rate, int sampleBits, int numChannels, boolean isFloat) throws IOException
+	{
+		stop();
+
+		sampleRate = rate;
+		sampleSizeInBits = sampleBits;
+		channels = numChannels;
+		floatSamples = isFloat;
+		sourceOrder = ByteOrder.nativeOrder();
+		dataBytes = 0;
+		error = null;
+		ring.reset();
+
+		raFile = new RandomAccessFile(file, "rw");
+		raFile.setLength(0);
+		channel = raFile.getChannel();
+		writeHeader();
+		channel.position(HEADER_SIZE);
+
+		recording = true;
+		writerThread = new Thread("WavRecorder")
+		{
+			public void run()
+			{
+				writerLoop();
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+		System.out.println("[WavRecorder] recording to " + file.getAbsolutePath());
+	}
+
+	/*
+	 * Queues the remaining bytes of buf. Never blocks: if the writer is too far
+	 * behind the buffer is dropped and counted in getDroppedBuffers()
+	 */
+	public boolean write(ByteBuffer buf)
+	{
+		if (recording == false)
+			return false;
+		boolean queued = ring.write(buf);
+		if (ring.available() > batch.length / 4)
+			LockSupport.unpark(writerThread);
+		return queued;
+	}
+
+	/*
+	 * Flushes what is still queued, writes the final header and closes the file.
+	 * Also needed after the writer failed (isRecording() is false then but the file is
+	 * still open): the header gets the sizes of the data that did reach the disk
+	 */
+	public void stop()
+	{
+		if (writerThread == null && channel == null)
+			return;
+		recording = false;
+		if (writerThread != null)
+		{
+			LockSupport.unpark(writerThread);
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) { }
+			writerThread = null;
+		}
+
+		try {
+			drain();
+		} catch (IOException e) {
+			failed(e);
+		}
+		try {
+			writeHeader();
+		} catch (IOException e) {
+			failed(e);
+		}
+		try {
+			raFile.close(); // closes the channel too
+		} catch (IOException e) {
+			failed(e);
+		}
+		channel = null;
+		raFile = null;
+		System.out.println("[WavRecorder] stopped. " + dataBytes + " bytes written, " + ring.getOverruns() + " buffers dropped");
+	}
+
+	public boolean isRecording()
+	{
+		return recording;
+	}
+
+	public long getDataBytes()
+	{
+		return dataBytes;
+	}
+
+	public long getDroppedBuffers()
+	{
+		return ring.getOverruns();
+	}
+
+	// the first I/O error met by the writer, or null
+	public IOException getError()
+	{
+		return error;
+	}
+
+	private void writerLoop()
+	{
+		long lastPatch = System.nanoTime();
+		try {
+			while (recording == true)
+			{
+				LockSupport.parkNanos(50000000);
+				drain();
+				long now = System.nanoTime();
+				if (now - lastPatch > HEADER_PATCH_INTERVAL)
+				{
+					writeHeader();
+					lastPatch = now;
+				}
+			}
+		} catch (IOException e) {
+			failed(e);
+			recording = false; // stop() still closes the file
+		}
+	}
+
+	private void failed(IOException e)
+	{
+		e.printStackTrace();
+		if (error == null)
+			error = e;
+	}
+
+	private void drain() throws IOException
+	{
+		int frameBytes = (sampleSizeInBits / 8) * channels;
+		int len;
+		while ((len = ring.readAvailable(batch, 0, batch.length - batch.length % frameBytes)) > 0)
+		{
+			convertToWav(len);
+			batchBuffer.clear();
+			batchBuffer.limit(len);
+			while (batchBuffer.hasRemaining())
+				channel.write(batchBuffer);
+			dataBytes += len;
+		}
+	}
+
+	// WAV wants little endian samples and unsigned 8 bit samples
+	private void convertToWav(int len)
+	{
+		if (sampleSizeInBits == 8)
+		{
+			for (int i = 0; i < len; i++)
+				batch[i] ^= (byte)0x80;
+		}
+		else if (sourceOrder == ByteOrder.BIG_ENDIAN)
+		{
+			int bytes = sampleSizeInBits / 8;
+			for (int i = 0; i + bytes <= len; i += bytes)
+			{
+				for (int lo = i, hi = i + bytes - 1; lo < hi; lo++, hi--)
+				{
+					byte tmp = batch[lo];
+					batch[lo] = batch[hi];
+					batch[hi] = tmp;
+				}
+			}
+		}
+	}
+
+	// writes the header at the beginning of the file without moving the channel position
+	private void writeHeader() throws IOException
+	{
+		int blockAlign = (sampleSizeInBits / 8) * channels;
+		long dataSize = Math.min(dataBytes, 0xFFFFFFFFL - 36);
+
+		header.clear();
+		header.put((byte)'R').put((byte)'I').put((byte)'F').put((byte)'F');
+		header.putInt((int)(36 + dataSize));
+		header.put((byte)'W').put((byte)'A').put((byte)'V').put((byte)'E');
+		header.put((byte)'f').put((byte)'m').put((byte)'t').put((byte)' ');
+		header.putInt(16);
+		header.putShort((short)(floatSamples == true ? 3 : 1)); // 1: PCM, 3: IEEE float
+		header.putShort((short)channels);
+		header.putInt(sampleRate);
+		header.putInt(sampleRate * blockAlign);
+		header.putShort((short)blockAlign);
+		header.putShort((short)sampleSizeInBits);
+		header.put((byte)'d').put((byte)'a').put((byte)'t').put((byte)'a');
+		header.putInt((int)dataSize);
+		header.flip();
+
+		long pos = 0;
+		while (header.hasRemaining())
+			pos += channel.write(header, pos);
+	}
+}
@@ -0,0 +1,64 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+/*
+ * Precomputed analysis windows for the short-time Fourier transform.
+ * Tables are built once per window size and then only multiplied with the samples.
+ */
+public class WindowFunction
+{
+	public static final int RECTANGULAR = 0;
+	public static final int HANN        = 1;
+	public static final int BLACKMAN    = 2;
+
+	private WindowFunction()
+	{
+	}
+
+	public static double[] create(int type, int size)
+	{
+		double[] table = new double[size];
+		double step = size > 1 ? 2 * Math.PI / (size - 1) : 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			switch (type)
+			{
+				case HANN:
+					table[i] = 0.5 - 0.5 * Math.cos(step * i);
+				break;
+				case BLACKMAN:
+					table[i] = 0.42 - 0.5 * Math.cos(step * i) + 0.08 * Math.cos(2 * step * i);
+				break;
+				default:
+					table[i] = 1.0;
+				break;
+			}
+		}
+		return table;
+	}
+
+	// mean value of the window. Used to compensate the amplitude lost by windowing
+	public static double coherentGain(double[] table)
+	{
+		double sum = 0;
+		for (int i = 0; i < table.length; i++)
+			sum += table[i];
+		return table.length > 0 ? sum / table.length : 1;
+	}
+}
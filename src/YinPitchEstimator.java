@@ -0,0 +1,146 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * YIN fundamental frequency estimator (de Cheveigne and Kawahara, 2002).
+ * The difference function d(tau) = e(0) + e(tau) - 2 r(tau) is built from the
+ * autocorrelation r, which is computed with a single complex FFT of the frame
+ * (the integration window and the whole frame are packed as real and imaginary
+ * parts), so the cost stays O(N log N) instead of O(N^2).
+ * The lag is refined with parabolic interpolation, so the resolution is
+ * not limited to the FFT bins.
+ * Frames arrive in single precision, but the autocorrelation is computed in double:
+ * d(tau) subtracts 2 r(tau) from energies of about the same size, and near the period,
+ * where the threshold is checked, float rounding is a large share of what is left.
+ */
+public class YinPitchEstimator implements PitchEstimator
+{
+	int frameSize = 0;
+	int integrationSize = 0; // W: half of the frame. Also the largest lag
+	float sampleRate = 44100;
+	double threshold = 0.15;
+	double maxFrequency = 2000;
+	double confidence = 0;
+
+	DoubleFFT_1D fft = null;
+	double[] spectrum = null; // interleaved complex work buffer
+	double[] product = null; // cross spectrum, then autocorrelation
+	double[] energy = null; // prefix sums of the squared samples
+	double[] cmndf = null; // cumulative mean normalized difference
+
+	public YinPitchEstimator()
+	{
+	}
+
+	public YinPitchEstimator(double thr, double maxFreq)
+	{
+		threshold = thr;
+		maxFrequency = maxFreq;
+	}
+
+	public void configure(int size, float rate)
+	{
+		sampleRate = rate;
+		if (size == frameSize && fft != null)
+			return;
+		frameSize = size;
+		integrationSize = frameSize / 2;
+		fft = DoubleFFT_1D.forSize(frameSize);
+		spectrum = new double[frameSize * 2];
+		product = new double[frameSize * 2];
+		energy = new double[frameSize + 1];
+		cmndf = new double[integrationSize];
+	}
+
+	public double estimate(float[] samples, float[] magnitude)
+	{
+		int n = frameSize;
+		int w = integrationSize;
+		confidence = 0;
+
+		for (int j = 0; j < n; j++)
+		{
+			double s = samples[j];
+			spectrum[2 * j] = j < w ? s : 0; // a: integration window
+			spectrum[2 * j + 1] = s;          // b: whole frame
+			energy[j + 1] = energy[j] + s * s;
+		}
+		if (energy[w] < 1e-9)
+			return 0; // silence
+
+		fft.complexForward(spectrum);
+
+		// split the two spectra and build conj(C) = conj(conj(A) * B)
+		for (int k = 0; k < n; k++)
+		{
+			int m = (k == 0) ? 0 : n - k;
+			double zr = spectrum[2 * k], zi = spectrum[2 * k + 1];
+			double wr = spectrum[2 * m], wi = spectrum[2 * m + 1];
+			double ar = (zr + wr) * 0.5, ai = (zi - wi) * 0.5;
+			double br = (zi + wi) * 0.5, bi = (wr - zr) * 0.5;
+			product[2 * k] = ar * br + ai * bi;
+			product[2 * k + 1] = -(ar * bi - ai * br);
+		}
+		// inverse transform as conj(FFT(conj(C))) / n. The result is real
+		fft.complexForward(product);
+
+		// difference function, normalized by its cumulative mean
+		double e0 = energy[w];
+		double runningSum = 0;
+		cmndf[0] = 1;
+		for (int tau = 1; tau < w; tau++)
+		{
+			double r = product[2 * tau] / n;
+			double d = e0 + (energy[tau + w] - energy[tau]) - 2 * r;
+			runningSum += d;
+			cmndf[tau] = runningSum > 0 ? d * tau / runningSum : 1;
+		}
+
+		// absolute threshold: first dip below it, then walk down to its minimum
+		int tauMin = Math.max(2, (int)(sampleRate / maxFrequency));
+		int tau = -1;
+		for (int t = tauMin; t < w - 1; t++)
+		{
+			if (cmndf[t] < threshold)
+			{
+				while (t + 1 < w - 1 && cmndf[t + 1] < cmndf[t])
+					t++;
+				tau = t;
+				break;
+			}
+		}
+		if (tau < 0)
+			return 0; // unvoiced
+
+		// parabolic interpolation around the minimum
+		double s0 = cmndf[tau - 1], s1 = cmndf[tau], s2 = cmndf[tau + 1];
+		double denom = s0 - 2 * s1 + s2;
+		double betterTau = tau;
+		if (denom != 0)
+			betterTau += (s0 - s2) / (2 * denom);
+
+		confidence = Math.max(0, 1 - s1);
+		return sampleRate / betterTau;
+	}
+
+	public double getConfidence()
+	{
+		return confidence;
+	}
+}
@@ -0,0 +1,58 @@
+package org.jpab;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stream driven by the caller instead of by a callback, like PortAudio's 
+ * Pa_ReadStream/Pa_WriteStream. The caller decides pacing and batching from an 
+ * ordinary Java thread and no JNI upcall happens per buffer.
+ * <p>
+ * Implemented by the PortAudio backend ({@link PortAudio#createBlockingStream(StreamConfiguration)})
+ * and by {@link FakeBlockingStream}, which needs no audio hardware.
+ */
+public interface BlockingStream {
+
+	StreamConfiguration getConfiguration();
+
+	void start() throws PortAudioException;
+
+	void stop() throws PortAudioException;
+
+	void close() throws PortAudioException;
+
+	/**
+	 * Reads exactly frames frames at the position of buffer, blocking until they are
+	 * available. The position is advanced past the data read.
+	 * 
+	 * @param buffer A direct buffer with at least frames * frame size bytes remaining.
+	 * @param frames Number of frames to read.
+	 * @return false if input data was discarded before this read (input overflow).
+	 */
+	boolean read(ByteBuffer buffer, int frames) throws PortAudioException;
+
+	/**
+	 * Writes exactly frames frames from the position of buffer, blocking until there is
+	 * room for them. The position is advanced past the data written.
+	 * 
+	 * @param buffer A direct buffer with at least frames * frame size bytes remaining.
+	 * @param frames Number of frames to write.
+	 * @return false if the output ran out of data before this write (output underflow).
+	 */
+	boolean write(ByteBuffer buffer, int frames) throws PortAudioException;
+
+	/**
+	 * Returns the input latency of the open stream in seconds, or 0 when unknown.
+	 */
+	double getInputLatency() throws PortAudioException;
+
+	/**
+	 * Returns the number of frames that can be read without blocking.
+	 */
+	int getReadAvailable() throws PortAudioException;
+
+	/**
+	 * Returns the number of frames that can be written without blocking.
+	 */
+	int getWriteAvailable() throws PortAudioException;
+
+}
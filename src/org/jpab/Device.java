@@ -93,5 +93,9 @@ public class Device implements PortAudio.Component {
 	protected int getID() {
 		return id;
 	}
+	
+	protected int getHostAPIID() {
+		return hostAPI;
+	}
 
 }
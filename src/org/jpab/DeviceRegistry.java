@@ -0,0 +1,247 @@
+package org.jpab;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Cached view of the PortAudio devices, and owner of the PortAudio library lifetime.
+ * <p>
+ * PortAudio can only enumerate devices between {@link PortAudio#initialize()} and 
+ * {@link PortAudio#terminate()}, and re-initializing it is the only way to see devices 
+ * that were plugged or removed. The registry keeps the library initialized once for all 
+ * its users and counts them: streams must be opened between {@link #acquire()} and 
+ * {@link #release()}, and the device list is only rebuilt from scratch when nobody holds it.
+ * <p>
+ * Devices are identified by a key made of their name and host API type, such as 
+ * <code>"Microphone (USB Audio) [MME]"</code>. Unlike PortAudio indexes, keys survive 
+ * device changes and restarts, so they are what user preferences should store.
+ */
+public final class DeviceRegistry {
+
+	/**
+	 * Told when a refresh finds a different set of devices, on the refreshing thread.
+	 */
+	public interface Listener {
+		void devicesChanged(List <Device> devices);
+	}
+	
+	private static final Object lock = new Object();
+	private static boolean initialized = false;
+	private static int users = 0;
+	private static List <Device> devices = Collections.emptyList();
+	private static Map <Integer, HostAPI> hostAPIs = new HashMap <Integer, HostAPI> ();
+	private static List <Listener> listeners = new ArrayList <Listener> ();
+	private static Timer timer = null;
+	
+	private DeviceRegistry() {
+	}
+	
+	/**
+	 * Initializes PortAudio if needed and keeps it initialized until the matching {@link #release()}.
+	 * The device list is enumerated on first use.
+	 */
+	public static void acquire() throws PortAudioException {
+		synchronized (lock) {
+			ensureInitialized();
+			users++;
+		}
+	}
+	
+	/**
+	 * Ends a use started by {@link #acquire()}. PortAudio itself stays initialized 
+	 * for the registry until {@link #shutdown()}.
+	 */
+	public static void release() {
+		synchronized (lock) {
+			if (users > 0)
+				users--;
+		}
+	}
+	
+	/**
+	 * Terminates PortAudio, if the registry initialized it. Meant for application exit:
+	 * streams still open are closed by the library.
+	 */
+	public static void shutdown() {
+		synchronized (lock) {
+			stopAutoRefresh();
+			if (initialized == false)
+				return;
+			initialized = false;
+			users = 0;
+			devices = Collections.emptyList();
+			hostAPIs.clear();
+			try {
+				PortAudio.terminate();
+			} catch (PortAudioException ex) {
+				ex.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Enumerates the devices again. When no stream holds the registry PortAudio is re-initialized,
+	 * so that hot-plugged devices show up; otherwise only the current list is read again.
+	 * Returns true if the list changed.
+	 */
+	public static boolean refresh() throws PortAudioException {
+		List <Device> changed = null;
+		List <Listener> targets;
+		synchronized (lock) {
+			List <Device> old = devices;
+			if (initialized == true && users == 0) {
+				initialized = false;
+				PortAudio.terminate();
+			}
+			if (initialized == false) {
+				PortAudio.initialize();
+				initialized = true;
+			}
+			enumerate();
+			if (sameKeys(old, devices) == false)
+				changed = devices;
+			targets = new ArrayList <Listener> (listeners);
+		}
+		if (changed == null)
+			return false;
+		for (Listener l : targets)
+			l.devicesChanged(changed);
+		return true;
+	}
+	
+	/**
+	 * Refreshes the list every period milliseconds on a background daemon thread,
+	 * until {@link #stopAutoRefresh()}. Refreshes while streams are open do not see new devices.
+	 */
+	public static void startAutoRefresh(long period) {
+		synchronized (lock) {
+			stopAutoRefresh();
+			timer = new Timer("DeviceRegistry", true);
+			timer.schedule(new TimerTask() {
+				public void run() {
+					try {
+						refresh();
+					} catch (PortAudioException ex) {
+						ex.printStackTrace();
+					}
+				}
+			}, period, period);
+		}
+	}
+	
+	public static void stopAutoRefresh() {
+		synchronized (lock) {
+			if (timer != null) {
+				timer.cancel();
+				timer = null;
+			}
+		}
+	}
+	
+	public static void addListener(Listener l) {
+		synchronized (lock) {
+			listeners.add(l);
+		}
+	}
+	
+	public static void removeListener(Listener l) {
+		synchronized (lock) {
+			listeners.remove(l);
+		}
+	}
+	
+	/**
+	 * Returns all the devices, in PortAudio order. The list is not modifiable and is 
+	 * replaced, not changed, by a refresh.
+	 */
+	public static List <Device> getDevices() throws PortAudioException {
+		synchronized (lock) {
+			ensureInitialized();
+			return devices;
+		}
+	}
+	
+	public static List <Device> getInputDevices() throws PortAudioException {
+		ArrayList <Device> list = new ArrayList <Device> ();
+		for (Device device : getDevices())
+			if (device.getMaxInputChannels() > 0)
+				list.add(device);
+		return list;
+	}
+	
+	public static List <Device> getOutputDevices() throws PortAudioException {
+		ArrayList <Device> list = new ArrayList <Device> ();
+		for (Device device : getDevices())
+			if (device.getMaxOutputChannels() > 0)
+				list.add(device);
+		return list;
+	}
+	
+	/**
+	 * Returns the host API of a listed device, without asking PortAudio again.
+	 */
+	public static HostAPI getHostAPI(Device device) throws PortAudioException {
+		synchronized (lock) {
+			HostAPI api = hostAPIs.get(device.getHostAPIID());
+			return api != null ? api : device.getHostAPI();
+		}
+	}
+	
+	/**
+	 * Returns the stable identity of a device: its name followed by the host API type in brackets.
+	 */
+	public static String getKey(Device device) throws PortAudioException {
+		return device.getName() + " [" + getHostAPI(device).getType() + "]";
+	}
+	
+	/**
+	 * Returns the current PortAudio index of a device. Only valid until the next refresh.
+	 */
+	public static int getIndex(Device device) {
+		return device.getID();
+	}
+	
+	/**
+	 * Finds a device by key, or null if it is not connected.
+	 */
+	public static Device find(String key) throws PortAudioException {
+		if (key == null)
+			return null;
+		for (Device device : getDevices())
+			if (key.equals(getKey(device)))
+				return device;
+		return null;
+	}
+	
+	private static void ensureInitialized() throws PortAudioException {
+		if (initialized == true)
+			return;
+		PortAudio.initialize();
+		initialized = true;
+		enumerate();
+	}
+	
+	private static void enumerate() throws PortAudioException {
+		HashMap <Integer, HostAPI> apis = new HashMap <Integer, HostAPI> ();
+		for (HostAPI api : PortAudio.getHostAPIs())
+			apis.put(api.getID(), api);
+		hostAPIs = apis;
+		devices = Collections.unmodifiableList(PortAudio.getDevices());
+	}
+	
+	private static boolean sameKeys(List <Device> a, List <Device> b) {
+		if (a.size() != b.size())
+			return false;
+		for (int i = 0; i < a.size(); i++)
+			if (a.get(i).getName().equals(b.get(i).getName()) == false 
+					|| a.get(i).getHostAPIID() != b.get(i).getHostAPIID())
+				return false;
+		return true;
+	}
+	
+}
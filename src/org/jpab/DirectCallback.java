@@ -0,0 +1,35 @@
+package org.jpab;
+
+/**
+ * A callback that does not receive new buffers on every call. The stream owns
+ * one direct input buffer and one direct output buffer, allocated when the 
+ * stream is opened and reused by every callback. The native layer copies the
+ * device data into them, so Java code can keep views on them (for example a
+ * ShortBuffer in native order) and decode samples straight from native memory.
+ * <p>
+ * Buffer lifetime contract:
+ * <ul>
+ * <li>{@link Stream#getInputBuffer()} and {@link Stream#getOutputBuffer()} always
+ * return the same objects for a given stream.</li>
+ * <li>Their content is valid only during {@link #callback(Stream, int)}: it is
+ * overwritten by the next callback. Data needed later must be copied before returning.</li>
+ * <li>On entry the position is 0 and the limit is the number of bytes of this
+ * callback. Views created on the buffers stay valid but must respect that limit.</li>
+ * <li>The buffers may be used from no other thread than the callback one.</li>
+ * </ul>
+ * When debug mode is enabled (see {@link PortAudio#setDebug(boolean)}) the limit is
+ * set to 0 outside of callbacks and the input memory is filled with a marker pattern
+ * after each callback, so that late reads fail or return obviously wrong data.
+ */
+public interface DirectCallback {
+
+	/**
+	 * Called when the stream has input data and/or needs output data.
+	 * 
+	 * @param stream The stream, from which the stable buffers are obtained.
+	 * @param frames Number of frames available in the input buffer and expected in the output buffer.
+	 * @return The new state.
+	 */
+	Callback.State callback(Stream stream, int frames);
+
+}
@@ -0,0 +1,159 @@
+package org.jpab;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pure Java {@link BlockingStream} for tests and for machines without audio devices.
+ * Input is read from a source buffer, looped, or is silence when there is none.
+ * Output is counted and discarded. When paced, reads and writes block like a
+ * device running at the configured sample rate; otherwise they return at once.
+ */
+public class FakeBlockingStream implements BlockingStream {
+
+	private final StreamConfiguration configuration;
+	private final ByteBuffer source;
+	private final boolean paced;
+	private final int inputFrameSize, outputFrameSize;
+
+	private boolean started = false;
+	private boolean closed = false;
+	private long startNanos = 0;
+	private long framesRead = 0;
+	private long framesWritten = 0;
+	private boolean overflowPending = false;
+
+	/**
+	 * @param configuration Formats, channels and sample rate of the stream.
+	 * @param source Input samples in the input format, in native order, or null for silence.
+	 * @param paced true to deliver frames in real time.
+	 */
+	public FakeBlockingStream(StreamConfiguration configuration, ByteBuffer source, boolean paced) {
+		this.configuration = configuration;
+		this.source = source != null ? source.duplicate() : null;
+		this.paced = paced;
+		final StreamConfiguration.Mode mode = configuration.getMode();
+		inputFrameSize = mode != StreamConfiguration.Mode.OUTPUT_ONLY ? 
+				configuration.getInputFormat().getSize() * configuration.getInputChannels() : 0;
+		outputFrameSize = mode != StreamConfiguration.Mode.INPUT_ONLY ? 
+				configuration.getOutputFormat().getSize() * configuration.getOutputChannels() : 0;
+		if (this.source != null && this.source.remaining() < inputFrameSize)
+			throw new IllegalArgumentException("The source must hold at least one frame");
+	}
+
+	public StreamConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public synchronized void start() throws PortAudioException {
+		if (closed)
+			throw new PortAudioException("Stream closed");
+		started = true;
+		startNanos = System.nanoTime();
+		framesRead = 0;
+		framesWritten = 0;
+	}
+
+	public synchronized void stop() {
+		started = false;
+	}
+
+	public synchronized void close() {
+		started = false;
+		closed = true;
+	}
+
+	public boolean read(ByteBuffer buffer, int frames) throws PortAudioException {
+		checkRunning(inputFrameSize);
+		waitFor(framesRead + frames);
+		int bytes = frames * inputFrameSize;
+		while (bytes > 0) {
+			if (source == null) {
+				buffer.put((byte) 0);
+				bytes--;
+				continue;
+			}
+			if (source.hasRemaining() == false)
+				source.rewind();
+			final ByteBuffer chunk = source.duplicate();
+			chunk.limit(chunk.position() + Math.min(bytes, chunk.remaining()));
+			bytes -= chunk.remaining();
+			source.position(chunk.limit());
+			buffer.put(chunk);
+		}
+		framesRead += frames;
+		final boolean ok = !overflowPending;
+		overflowPending = false;
+		return ok;
+	}
+
+	public boolean write(ByteBuffer buffer, int frames) throws PortAudioException {
+		checkRunning(outputFrameSize);
+		waitFor(framesWritten + frames);
+		buffer.position(buffer.position() + frames * outputFrameSize);
+		framesWritten += frames;
+		return true;
+	}
+
+	/**
+	 * There is no device in between: the input latency is 0.
+	 */
+	public double getInputLatency() {
+		return 0;
+	}
+
+	public int getReadAvailable() {
+		return available(framesRead);
+	}
+
+	public int getWriteAvailable() {
+		return available(framesWritten);
+	}
+
+	/**
+	 * Makes the next read report an input overflow, as if the reader had been too slow.
+	 */
+	public void simulateOverflow() {
+		overflowPending = true;
+	}
+
+	public long getFramesRead() {
+		return framesRead;
+	}
+
+	public long getFramesWritten() {
+		return framesWritten;
+	}
+
+	private void checkRunning(int frameSize) throws PortAudioException {
+		if (frameSize == 0)
+			throw new IllegalStateException("The stream has no such direction");
+		if (started == false)
+			throw new PortAudioException("Stream not started");
+	}
+
+	// frames the device would have produced since start()
+	private long deviceFrames() {
+		return (long) ((System.nanoTime() - startNanos) / 1e9 * configuration.getSampleRate());
+	}
+
+	private int available(long done) {
+		if (paced == false)
+			return Integer.MAX_VALUE;
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, deviceFrames() - done));
+	}
+
+	private void waitFor(long frames) {
+		if (paced == false)
+			return;
+		long missing;
+		while ((missing = frames - deviceFrames()) > 0) {
+			try {
+				Thread.sleep(Math.max(1, (long) (missing * 1000 / configuration.getSampleRate())));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+}
@@ -14,6 +14,14 @@ public final class PortAudio
 	
 	private static HashMap <Integer, Stream> streams = new HashMap <Integer, Stream> ();
 	
+	/**
+	 * Size in frames of the stable buffers of direct streams. Larger device buffers
+	 * are delivered in several callbacks.
+	 */
+	public static final int DIRECT_BUFFER_FRAMES = 8192;
+	
+	private static volatile boolean debug = Boolean.getBoolean("org.jpab.debug");
+	
     public static void load(File file) throws UnsatisfiedLinkError 
     {
         try {
@@ -52,12 +60,44 @@ public final class PortAudio
 		load(new File(directory, System.mapLibraryName("PortAudioJNI")));
 	}
 	
-	protected static int callback(int id, ByteBuffer input, ByteBuffer output) {
+	/*
+	 * Upcalls from the native callback. statusFlags are the PortAudio status bits, the latencies
+	 * come from the callback time info: how old the input is and how far ahead the output goes, in seconds
+	 */
+	protected static int callback(int id, ByteBuffer input, ByteBuffer output, int statusFlags, double inputLatency, double outputLatency) {
+		final Stream stream = streams.get(id);
+		final long start = System.nanoTime();
 		if (input != null) {
 			input.limit(input.capacity());
 			input = input.asReadOnlyBuffer();
 		}
-		return streams.get(id).callback.callback(input, output).ordinal();
+		final int result = stream.callback.callback(input, output).ordinal();
+		stream.telemetry.record(System.nanoTime() - start, statusFlags, inputLatency, outputLatency);
+		return result;
+	}
+	
+	protected static int directCallback(int id, int frames, int statusFlags, double inputLatency, double outputLatency) {
+		final Stream stream = streams.get(id);
+		final long start = System.nanoTime();
+		stream.openBuffers(frames);
+		try {
+			return stream.directCallback.callback(stream, frames).ordinal();
+		} finally {
+			stream.closeBuffers();
+			stream.telemetry.record(System.nanoTime() - start, statusFlags, inputLatency, outputLatency);
+		}
+	}
+	
+	/**
+	 * Enables the enforcement of the buffer lifetime contract of {@link DirectCallback}.
+	 * Also enabled with the system property org.jpab.debug=true.
+	 */
+	public static void setDebug(boolean enable) {
+		debug = enable;
+	}
+	
+	public static boolean isDebug() {
+		return debug;
 	}
 	
 	protected static void hook(int id) {
@@ -74,6 +114,40 @@ public final class PortAudio
 		return stream;
 	}
 
+	/**
+	 * Opens a stream whose callback reads and writes stable direct buffers owned by the stream,
+	 * instead of a new buffer for every callback. Nothing is allocated per callback.
+	 */
+	public static Stream createDirectStream(StreamConfiguration configuration, DirectCallback callback, Runnable hook) throws PortAudioException {
+		assert(configuration != null && callback != null && hook != null);
+		final StreamConfiguration.Mode mode = configuration.getMode();
+		int inputFrameSize = 0, outputFrameSize = 0;
+		ByteBuffer input = null, output = null;
+		if (mode != StreamConfiguration.Mode.OUTPUT_ONLY) {
+			inputFrameSize = configuration.getInputFormat().getSize() * configuration.getInputChannels();
+			input = ByteBuffer.allocateDirect(DIRECT_BUFFER_FRAMES * inputFrameSize).order(ByteOrder.nativeOrder());
+		}
+		if (mode != StreamConfiguration.Mode.INPUT_ONLY) {
+			outputFrameSize = configuration.getOutputFormat().getSize() * configuration.getOutputChannels();
+			output = ByteBuffer.allocateDirect(DIRECT_BUFFER_FRAMES * outputFrameSize).order(ByteOrder.nativeOrder());
+		}
+		// the stream keeps the buffers reachable for as long as the native side may write them
+		final int id = openDirectStream(configuration.serialize(), input, output, DIRECT_BUFFER_FRAMES);
+		final Stream stream = new Stream(callback, configuration, hook, id, input, output, inputFrameSize, outputFrameSize);
+		streams.put(id, stream);
+		return stream;
+	}
+	
+	/**
+	 * Opens a stream without callback, read and written by the caller with 
+	 * {@link BlockingStream#read(ByteBuffer, int)} and {@link BlockingStream#write(ByteBuffer, int)}.
+	 */
+	public static BlockingStream createBlockingStream(StreamConfiguration configuration) throws PortAudioException {
+		assert(configuration != null);
+		final int id = openBlockingStream(configuration.serialize());
+		return new PortAudioBlockingStream(configuration, id);
+	}
+	
 	public static HostAPI getDefaultHostAPI() throws PortAudioException {
 		final ByteBuffer buffer = getDefaultHostAPIAsBuffer();
 		buffer.order(ByteOrder.nativeOrder());
@@ -165,11 +239,19 @@ public final class PortAudio
 	protected static native ByteBuffer getHostAPIsAsBuffer() throws PortAudioException;
 	protected static native ByteBuffer getHostAPIsDevicesAsBuffer(int hostIndex) throws PortAudioException;
 	protected static native double getStreamCpuLoad(int id) throws PortAudioException;
+	protected static native double getStreamInputLatency(int id) throws PortAudioException;
+	protected static native double getStreamOutputLatency(int id) throws PortAudioException;
 	protected static native double getStreamTime(int id) throws PortAudioException;
 	protected static native void isFormatSupported(ByteBuffer configuration) throws PortAudioException;
 	protected static native boolean isStreamActive(int id) throws PortAudioException;
 	protected static native boolean isStreamStopped(int id) throws PortAudioException;
 	protected static native int openStream(ByteBuffer configuration) throws PortAudioException;
+	protected static native int openDirectStream(ByteBuffer configuration, ByteBuffer input, ByteBuffer output, int maxFrames) throws PortAudioException;
+	protected static native int openBlockingStream(ByteBuffer configuration) throws PortAudioException;
+	protected static native boolean readStream(int id, ByteBuffer buffer, int offset, int frames) throws PortAudioException;
+	protected static native boolean writeStream(int id, ByteBuffer buffer, int offset, int frames) throws PortAudioException;
+	protected static native int getStreamReadAvailable(int id) throws PortAudioException;
+	protected static native int getStreamWriteAvailable(int id) throws PortAudioException;
 	protected static native void startStream(int id) throws PortAudioException;
 	protected static native void stopStream(int id) throws PortAudioException;
 	
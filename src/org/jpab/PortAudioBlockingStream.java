@@ -0,0 +1,79 @@
+package org.jpab;
+
+import java.nio.ByteBuffer;
+
+final class PortAudioBlockingStream implements BlockingStream, PortAudio.Component {
+
+	private final StreamConfiguration configuration;
+	private final int id;
+	private final int inputFrameSize, outputFrameSize;
+
+	protected PortAudioBlockingStream(StreamConfiguration configuration, int id) {
+		this.configuration = configuration;
+		this.id = id;
+		final StreamConfiguration.Mode mode = configuration.getMode();
+		inputFrameSize = mode != StreamConfiguration.Mode.OUTPUT_ONLY ? 
+				configuration.getInputFormat().getSize() * configuration.getInputChannels() : 0;
+		outputFrameSize = mode != StreamConfiguration.Mode.INPUT_ONLY ? 
+				configuration.getOutputFormat().getSize() * configuration.getOutputChannels() : 0;
+	}
+
+	public StreamConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public void start() throws PortAudioException {
+		PortAudio.startStream(id);
+	}
+
+	public void stop() throws PortAudioException {
+		PortAudio.stopStream(id);
+	}
+
+	public void close() throws PortAudioException {
+		PortAudio.closeStream(id);
+	}
+
+	public boolean read(ByteBuffer buffer, int frames) throws PortAudioException {
+		final int bytes = check(buffer, frames, inputFrameSize);
+		final boolean ok = PortAudio.readStream(id, buffer, buffer.position(), frames);
+		buffer.position(buffer.position() + bytes);
+		return ok;
+	}
+
+	public boolean write(ByteBuffer buffer, int frames) throws PortAudioException {
+		final int bytes = check(buffer, frames, outputFrameSize);
+		final boolean ok = PortAudio.writeStream(id, buffer, buffer.position(), frames);
+		buffer.position(buffer.position() + bytes);
+		return ok;
+	}
+
+	public double getInputLatency() throws PortAudioException {
+		return PortAudio.getStreamInputLatency(id);
+	}
+
+	public int getReadAvailable() throws PortAudioException {
+		return PortAudio.getStreamReadAvailable(id);
+	}
+
+	public int getWriteAvailable() throws PortAudioException {
+		return PortAudio.getStreamWriteAvailable(id);
+	}
+
+	public String toString() {
+		return "Port Audio Blocking Stream #" + id;
+	}
+
+	// native code writes at the buffer address: it must be direct and large enough
+	private static int check(ByteBuffer buffer, int frames, int frameSize) {
+		if (frameSize == 0)
+			throw new IllegalStateException("The stream has no such direction");
+		if (buffer.isDirect() == false)
+			throw new IllegalArgumentException("A direct buffer is required");
+		final int bytes = frames * frameSize;
+		if (buffer.remaining() < bytes)
+			throw new IllegalArgumentException("Buffer too small for " + frames + " frames");
+		return bytes;
+	}
+
+}
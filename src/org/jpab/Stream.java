@@ -1,17 +1,88 @@
 package org.jpab;
 
+import java.nio.ByteBuffer;
+
 public final class Stream implements PortAudio.Component {
 	
 	protected final Callback callback;
+	protected final DirectCallback directCallback;
 	private final StreamConfiguration configuration;
 	protected final Runnable hook;
 	private final int id;
 	
+	// stable buffers of a direct stream. The views are the ones handed to the callback
+	private final ByteBuffer inputRegion, outputRegion;
+	private final ByteBuffer inputView, outputView;
+	private final int inputFrameSize, outputFrameSize;
+	
+	protected final StreamTelemetry telemetry = new StreamTelemetry(this);
+	
 	protected Stream(Callback callback, StreamConfiguration configuration, Runnable hook, int id) throws PortAudioException {
 		this.callback = callback;
+		this.directCallback = null;
 		this.configuration = configuration;
 		this.hook = hook;
 		this.id = id;
+		this.inputRegion = this.outputRegion = null;
+		this.inputView = this.outputView = null;
+		this.inputFrameSize = this.outputFrameSize = 0;
+	}
+	
+	protected Stream(DirectCallback callback, StreamConfiguration configuration, Runnable hook, int id, 
+			ByteBuffer inputRegion, ByteBuffer outputRegion, int inputFrameSize, int outputFrameSize) throws PortAudioException {
+		this.callback = null;
+		this.directCallback = callback;
+		this.configuration = configuration;
+		this.hook = hook;
+		this.id = id;
+		this.inputRegion = inputRegion;
+		this.outputRegion = outputRegion;
+		this.inputView = inputRegion != null ? inputRegion.asReadOnlyBuffer().order(inputRegion.order()) : null;
+		this.outputView = outputRegion != null ? outputRegion.duplicate().order(outputRegion.order()) : null;
+		this.inputFrameSize = inputFrameSize;
+		this.outputFrameSize = outputFrameSize;
+		closeBuffers();
+	}
+	
+	/**
+	 * Returns the stable, read-only, native order input buffer of a stream created with a
+	 * {@link DirectCallback}, or null. See DirectCallback for the lifetime contract.
+	 */
+	public ByteBuffer getInputBuffer() {
+		return inputView;
+	}
+	
+	/**
+	 * Returns the stable, native order output buffer of a stream created with a
+	 * {@link DirectCallback}, or null. See DirectCallback for the lifetime contract.
+	 */
+	public ByteBuffer getOutputBuffer() {
+		return outputView;
+	}
+	
+	// makes this callback's data visible
+	protected void openBuffers(int frames) {
+		if (inputView != null) {
+			inputView.clear();
+			inputView.limit(frames * inputFrameSize);
+		}
+		if (outputView != null) {
+			outputView.clear();
+			outputView.limit(frames * outputFrameSize);
+		}
+	}
+	
+	// in debug mode makes stale data unreachable through the views and poisons the input
+	protected void closeBuffers() {
+		if (PortAudio.isDebug() == false)
+			return;
+		if (inputView != null) {
+			inputView.limit(0);
+			for (int i = 0; i < inputRegion.capacity(); i++)
+				inputRegion.put(i, (byte) 0x7F);
+		}
+		if (outputView != null)
+			outputView.limit(0);
 	}
 
 	public void abort() throws PortAudioException {
@@ -19,6 +90,7 @@ public final class Stream implements PortAudio.Component {
 	}
 
 	public void close() throws PortAudioException {
+		telemetry.stopReporting();
 		PortAudio.closeStream(id);
 	}
 	
@@ -26,6 +98,28 @@ public final class Stream implements PortAudio.Component {
 		return configuration;
 	}
 	
+	/**
+	 * Returns the input latency of the open stream in seconds, as reported by PortAudio.
+	 * It may differ from the one requested in the configuration.
+	 */
+	public double getInputLatency() throws PortAudioException {
+		return PortAudio.getStreamInputLatency(id);
+	}
+	
+	/**
+	 * Returns the output latency of the open stream in seconds, as reported by PortAudio.
+	 */
+	public double getOutputLatency() throws PortAudioException {
+		return PortAudio.getStreamOutputLatency(id);
+	}
+	
+	/**
+	 * Returns the callback statistics of this stream, updated on every callback.
+	 */
+	public StreamTelemetry getTelemetry() {
+		return telemetry;
+	}
+	
 	public double getCpuLoad() throws PortAudioException {
 		return PortAudio.getStreamCpuLoad(id);
 	}
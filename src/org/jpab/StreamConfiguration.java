@@ -52,6 +52,23 @@ public class StreamConfiguration implements PortAudio.Component {
 		public String getName() {
 			return name;
 		}
+
+		/**
+		 * Returns the size of one sample in bytes.
+		 * 
+		 * @throws IllegalArgumentException if the format is not one of the predefined formats
+		 */
+		public int getSize() {
+			if (this == SIGNED_INTEGER_8 || this == UNSIGNED_INTEGER_8)
+				return 1;
+			if (this == SIGNED_INTEGER_16)
+				return 2;
+			if (this == SIGNED_INTEGER_24)
+				return 3;
+			if (this == SIGNED_INTEGER_32 || this == FLOAT_32)
+				return 4;
+			throw new IllegalArgumentException("Unsupported sample format: " + name);
+		}
 		
 		public String toString() {
 			return name;
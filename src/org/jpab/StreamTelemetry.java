@@ -0,0 +1,222 @@
+package org.jpab;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Health and latency figures of a callback stream, recorded on every callback.
+ * <p>
+ * Recording is meant for the audio thread: it costs two System.nanoTime() calls and a 
+ * few array updates, with no allocation and no lock. Everything else (CPU load polling,
+ * snapshots, reports) happens on the reader side.
+ * <p>
+ * Callback processing times go into a histogram of power of two buckets:
+ * bucket 0 counts durations under 2 microseconds, bucket i those from 2^i to 2^(i+1) - 1.
+ */
+public final class StreamTelemetry {
+
+	/** PortAudio status bits, as passed to the stream callback */
+	public static final int INPUT_UNDERFLOW = 0x01, INPUT_OVERFLOW = 0x02, OUTPUT_UNDERFLOW = 0x04, 
+		OUTPUT_OVERFLOW = 0x08, PRIMING_OUTPUT = 0x10;
+	
+	public static final int BUCKETS = 24;
+
+	// indexes in counters
+	private static final int CALLBACKS = 0, TOTAL_NANOS = 1, MAX_NANOS = 2, 
+		FLAG_BASE = 3, LATENCY_SAMPLES = 8, INPUT_LATENCY_NANOS = 9, OUTPUT_LATENCY_NANOS = 10, COUNTERS = 11;
+
+	/**
+	 * Receives periodic snapshots, on the reporting thread.
+	 */
+	public interface Listener {
+		void telemetry(Stream stream, Snapshot snapshot);
+	}
+
+	private final Stream stream;
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+	private volatile double cpuLoad = 0, maxCpuLoad = 0;
+	private Timer timer = null;
+
+	protected StreamTelemetry(Stream stream) {
+		this.stream = stream;
+	}
+
+	/*
+	 * Audio thread side. Only one thread calls it, so plain get/lazySet pairs are enough.
+	 * Latencies are in seconds, from the PortAudio time info (0 when unknown)
+	 */
+	protected void record(long nanos, int statusFlags, double inputLatency, double outputLatency) {
+		long micros = nanos / 1000;
+		int bucket = micros < 2 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+		histogram.lazySet(bucket, histogram.get(bucket) + 1);
+		counters.lazySet(CALLBACKS, counters.get(CALLBACKS) + 1);
+		counters.lazySet(TOTAL_NANOS, counters.get(TOTAL_NANOS) + nanos);
+		if (nanos > counters.get(MAX_NANOS))
+			counters.lazySet(MAX_NANOS, nanos);
+		if (statusFlags != 0) {
+			for (int bit = 0; bit < 5; bit++) {
+				if ((statusFlags & (1 << bit)) != 0)
+					counters.lazySet(FLAG_BASE + bit, counters.get(FLAG_BASE + bit) + 1);
+			}
+		}
+		if (inputLatency > 0 || outputLatency > 0) {
+			counters.lazySet(LATENCY_SAMPLES, counters.get(LATENCY_SAMPLES) + 1);
+			counters.lazySet(INPUT_LATENCY_NANOS, counters.get(INPUT_LATENCY_NANOS) + (long) (inputLatency * 1e9));
+			counters.lazySet(OUTPUT_LATENCY_NANOS, counters.get(OUTPUT_LATENCY_NANOS) + (long) (outputLatency * 1e9));
+		}
+	}
+
+	/**
+	 * Polls the CPU load of the stream. Called by the periodic report, can also be called directly.
+	 * 
+	 * @return the current CPU load, from 0 to 1
+	 */
+	public double sampleCpuLoad() {
+		try {
+			cpuLoad = stream.getCpuLoad();
+			if (cpuLoad > maxCpuLoad)
+				maxCpuLoad = cpuLoad;
+		} catch (PortAudioException ignore) { }
+		return cpuLoad;
+	}
+
+	public long getCallbacks() {
+		return counters.get(CALLBACKS);
+	}
+
+	/**
+	 * Returns how many callbacks had the given status bit set (for example INPUT_OVERFLOW).
+	 */
+	public long getFlagCount(int flag) {
+		int bit = Integer.numberOfTrailingZeros(flag);
+		return bit < 5 ? counters.get(FLAG_BASE + bit) : 0;
+	}
+
+	/**
+	 * Returns a copy of the callback duration histogram.
+	 */
+	public long[] getHistogram() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			copy[i] = histogram.get(i);
+		return copy;
+	}
+
+	public Snapshot snapshot() {
+		sampleCpuLoad();
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Sends a snapshot to listener every periodMillis, from a daemon timer thread.
+	 * Replaces a previous report.
+	 */
+	public synchronized void startReporting(long periodMillis, final Listener listener) {
+		stopReporting();
+		final Timer owner = new Timer("StreamTelemetry", true);
+		timer = owner;
+		timer.scheduleAtFixedRate(new TimerTask() {
+			public void run() {
+				// holds the monitor so that stopReporting() waits for a report in progress
+				synchronized (StreamTelemetry.this) {
+					if (timer == owner)
+						listener.telemetry(stream, snapshot());
+				}
+			}
+		}, periodMillis, periodMillis);
+	}
+
+	/**
+	 * Stops the periodic report. When this returns, no report is running and none will 
+	 * touch the stream any more, so the stream can be closed.
+	 */
+	public synchronized void stopReporting() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+
+	/**
+	 * Counters are not reset: they only grow for the whole life of the stream.
+	 * Compare two snapshots to get the figures of an interval.
+	 */
+	public static final class Snapshot {
+		public final long timeMillis;
+		public final long callbacks;
+		public final double meanMicros, maxMicros;
+		public final long p50Micros, p99Micros; // upper bound of the bucket holding the percentile
+		public final long inputUnderflows, inputOverflows, outputUnderflows, outputOverflows;
+		public final double requestedInputLatency, requestedOutputLatency; // seconds
+		public final double actualInputLatency, actualOutputLatency; // reported by PortAudio when the stream was opened
+		public final double measuredInputLatency, measuredOutputLatency; // average of the callback time info
+		public final double cpuLoad, maxCpuLoad;
+		public final long[] histogram;
+
+		private Snapshot(StreamTelemetry t) {
+			timeMillis = System.currentTimeMillis();
+			histogram = t.getHistogram();
+			callbacks = t.counters.get(CALLBACKS);
+			meanMicros = callbacks > 0 ? t.counters.get(TOTAL_NANOS) / 1000.0 / callbacks : 0;
+			maxMicros = t.counters.get(MAX_NANOS) / 1000.0;
+			p50Micros = percentile(histogram, 0.5);
+			p99Micros = percentile(histogram, 0.99);
+			inputUnderflows = t.getFlagCount(INPUT_UNDERFLOW);
+			inputOverflows = t.getFlagCount(INPUT_OVERFLOW);
+			outputUnderflows = t.getFlagCount(OUTPUT_UNDERFLOW);
+			outputOverflows = t.getFlagCount(OUTPUT_OVERFLOW);
+			StreamConfiguration config = t.stream.getConfiguration();
+			requestedInputLatency = config.getInputLatency();
+			requestedOutputLatency = config.getOutputLatency();
+			double in = 0, out = 0;
+			try {
+				in = t.stream.getInputLatency();
+				out = t.stream.getOutputLatency();
+			} catch (PortAudioException ignore) { }
+			actualInputLatency = in;
+			actualOutputLatency = out;
+			long samples = t.counters.get(LATENCY_SAMPLES);
+			measuredInputLatency = samples > 0 ? t.counters.get(INPUT_LATENCY_NANOS) / 1e9 / samples : 0;
+			measuredOutputLatency = samples > 0 ? t.counters.get(OUTPUT_LATENCY_NANOS) / 1e9 / samples : 0;
+			cpuLoad = t.cpuLoad;
+			maxCpuLoad = t.maxCpuLoad;
+		}
+
+		private static long percentile(long[] histogram, double p) {
+			long total = 0;
+			for (int i = 0; i < histogram.length; i++)
+				total += histogram[i];
+			long target = (long) Math.ceil(total * p), count = 0;
+			for (int i = 0; i < histogram.length; i++) {
+				count += histogram[i];
+				if (count >= target && count > 0)
+					return (2L << i) - 1;
+			}
+			return 0;
+		}
+
+		/**
+		 * One line of key=value pairs, easy to grep or to load in a spreadsheet.
+		 * Latencies are given as requested/actual/measured.
+		 */
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("time=").append(timeMillis);
+			sb.append(" callbacks=").append(callbacks);
+			sb.append(String.format(" meanUs=%.1f maxUs=%.1f p50Us=%d p99Us=%d", meanMicros, maxMicros, p50Micros, p99Micros));
+			sb.append(" inUnderflows=").append(inputUnderflows).append(" inOverflows=").append(inputOverflows);
+			sb.append(" outUnderflows=").append(outputUnderflows).append(" outOverflows=").append(outputOverflows);
+			sb.append(String.format(" inLatencyMs=%.2f/%.2f/%.2f outLatencyMs=%.2f/%.2f/%.2f",
+					requestedInputLatency * 1000, actualInputLatency * 1000, measuredInputLatency * 1000,
+					requestedOutputLatency * 1000, actualOutputLatency * 1000, measuredOutputLatency * 1000));
+			sb.append(String.format(" cpu=%.3f maxCpu=%.3f", cpuLoad, maxCpuLoad));
+			sb.append(" histogram=");
+			for (int i = 0; i < histogram.length; i++)
+				sb.append(i > 0 ? "," : "").append(histogram[i]);
+			return sb.toString();
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import org.jpab.StreamConfiguration.SampleFormat;
+
+/*
+ * Checks that the capture callback and the detection path allocate nothing in steady state.
+ * Not part of the application: compile it against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/AllocationCheck.java
+ *   java -cp bin AllocationCheck [seconds]
+ *
+ * AudioInputController needs an input device, so the chain it builds is built here the
+ * same way: a stable read-only direct buffer stands for the stream input, the callback
+ * decodes it into a SampleRingBuffer, and the analysis side drains the ring into a
+ * PitchDetector whose frames go to the OnsetDetector or the PolyphonicDetector, the
+ * SpectrumSnapshot and a MIDI receiver. The input is a sequence of tones and chords with
+ * gaps, so that notes are really started and stopped. Mono and multichannel streams are
+ * checked, each after a warm-up, with the bytes of each side counted separately like the
+ * two threads they run on.
+ * HotSpot now and then reports a few hundred bytes for an empty begin()/end() pair, while
+ * it compiles the calling code. So each case is measured in several passes of the given
+ * length and fails only if every pass allocated: the signal repeats every three seconds,
+ * so a steady-state allocation shows up in all of them. Exits with status 1 on a failure.
+ */
+public class AllocationCheck
+{
+	private static final float RATE = 44100;
+	private static final int BUFFER_FRAMES = 512; // frames per callback
+	private static final int WINDOW = 4096;
+	private static final int HOP = 512;
+	private static final double WARMUP_SECONDS = 10;
+	private static final int PASSES = 3;
+
+	private static final int[][] CHORDS = { { 60 }, { 64, 67 }, { 57 }, { 62, 65, 69 }, { 72 }, { 55, 59 } };
+
+	public static void main(String[] args)
+	{
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 30;
+		if (new AllocationCounter().isSupported() == false)
+		{
+			System.out.println("[AllocationCheck] this JVM cannot count allocated bytes");
+			System.exit(1);
+		}
+		// with a pool, only the real-time flag keeps the transforms on the calling thread
+		ConcurrencyUtils.setNumberOfThreads(4);
+		ConcurrencyUtils.setRealtimeThread(true);
+
+		boolean failed = false;
+		failed |= run("mono 16 bit, FFT peak", 1, SampleFormat.SIGNED_INTEGER_16, false, false, 0, seconds);
+		failed |= run("mono 16 bit, YIN", 1, SampleFormat.SIGNED_INTEGER_16, true, false, 0, seconds);
+		failed |= run("stereo 16 bit, channel 1", 2, SampleFormat.SIGNED_INTEGER_16, false, false, 1, seconds);
+		failed |= run("4 channels float, mix, polyphonic", 4, SampleFormat.FLOAT_32, false, true, PitchDetector.MIX, seconds);
+		failed |= run("stereo 16 bit, mix, polyphonic", 2, SampleFormat.SIGNED_INTEGER_16, false, true, PitchDetector.MIX, seconds);
+		if (failed)
+		{
+			System.out.println("[AllocationCheck] FAILED");
+			System.exit(1);
+		}
+	}
+
+	// returns true if the measured part allocated
+	private static boolean run(String name, int channels, SampleFormat format, boolean yin, boolean polyphonic, int channel, double seconds)
+	{
+		Chain chain = new Chain(channels, format, yin, polyphonic, channel);
+		int bytesPerFrame = format.getSize() * channels;
+		ByteBuffer device = ByteBuffer.allocateDirect(BUFFER_FRAMES * bytesPerFrame).order(ByteOrder.nativeOrder());
+		ByteBuffer input = device.asReadOnlyBuffer(); // what Stream.getInputBuffer() hands out on every callback
+		AllocationCounter callbackCounter = new AllocationCounter();
+		AllocationCounter analysisCounter = new AllocationCounter();
+
+		long sample = 0;
+		long warmupEnd = (long)(WARMUP_SECONDS * RATE);
+		long passLength = (long)(seconds * RATE);
+		long[] callbackBytes = new long[PASSES];
+		long[] analysisBytes = new long[PASSES];
+		int framesBefore = 0, notesBefore = 0;
+		while (sample < warmupEnd + PASSES * passLength)
+		{
+			synthesize(device, sample, channels, format);
+			if (sample < warmupEnd && sample + BUFFER_FRAMES >= warmupEnd)
+			{
+				framesBefore = chain.frames;
+				notesBefore = chain.notes;
+			}
+			sample += BUFFER_FRAMES;
+
+			input.clear();
+			callbackCounter.begin();
+			chain.callback(input);
+			callbackCounter.end();
+
+			analysisCounter.begin();
+			chain.drain();
+			analysisCounter.end();
+
+			if (sample > warmupEnd)
+			{
+				int pass = (int)Math.min(PASSES - 1, (sample - warmupEnd - 1) / passLength);
+				callbackBytes[pass] += callbackCounter.getLastBytes();
+				analysisBytes[pass] += analysisCounter.getLastBytes();
+			}
+		}
+
+		long callbackMin = Long.MAX_VALUE, analysisMin = Long.MAX_VALUE;
+		StringBuilder passes = new StringBuilder();
+		for (int p = 0; p < PASSES; p++)
+		{
+			callbackMin = Math.min(callbackMin, callbackBytes[p]);
+			analysisMin = Math.min(analysisMin, analysisBytes[p]);
+			passes.append(p == 0 ? "" : ", ").append(callbackBytes[p]).append('/').append(analysisBytes[p]);
+		}
+		boolean failed = callbackMin != 0 || analysisMin != 0 || chain.ring.getOverruns() != 0;
+		System.out.println(String.format("[AllocationCheck] %-36s %6d frames, %4d note events, callback/detection bytes per pass: %s%s",
+				name, chain.frames - framesBefore, chain.notes - notesBefore, passes, failed ? "  <- FAILED" : ""));
+		return failed;
+	}
+
+	/*
+	 * Writes the next BUFFER_FRAMES frames of the test signal into device, as the sound card would.
+	 * Each chord lasts half a second and ends with a tenth of a second of silence.
+	 * Every channel plays it, each one a little softer than the previous
+	 */
+	private static void synthesize(ByteBuffer device, long start, int channels, SampleFormat format)
+	{
+		int chordSamples = (int)(RATE / 2);
+		for (int f = 0; f < BUFFER_FRAMES; f++)
+		{
+			long t = start + f;
+			int pos = (int)(t % chordSamples);
+			int[] chord = CHORDS[(int)(t / chordSamples % CHORDS.length)];
+			double value = 0;
+			if (pos < chordSamples - RATE / 10)
+			{
+				for (int n = 0; n < chord.length; n++)
+				{
+					double freq = 440 * Math.pow(2, (chord[n] - 69) / 12.0);
+					value += 0.6 / chord.length * Math.sin(2 * Math.PI * freq * t / RATE);
+				}
+			}
+			for (int c = 0; c < channels; c++)
+			{
+				double v = value * (1.0 - 0.15 * c);
+				int index = (f * channels + c) * format.getSize();
+				if (format == SampleFormat.FLOAT_32)
+					device.putFloat(index, (float)v);
+				else
+					device.putShort(index, (short)Math.round(v * 32767));
+			}
+		}
+	}
+
+	// what AudioInputController wires up for a callback stream
+	private static class Chain implements PitchDetector.FrameListener, OnsetDetector.NoteListener, PolyphonicDetector.NoteListener
+	{
+		final int channels;
+		final boolean polyphonic;
+		final SampleRingBuffer ring = new SampleRingBuffer(BUFFER_FRAMES * 16);
+		final SampleDecoder captureDecoder;
+		final PitchDetector detector = new PitchDetector();
+		final OnsetDetector onsetDetector = new OnsetDetector();
+		final PolyphonicDetector polyDetector = new PolyphonicDetector();
+		final SpectrumSnapshot monitor = new SpectrumSnapshot();
+		final ShortMessage noteMessage = new ShortMessage();
+		final Receiver noteReceiver = new Receiver() {
+			public void send(MidiMessage message, long timeStamp) { }
+			public void close() { }
+		};
+		final float[] chunk;
+		long chunkNanos = 0;
+		long chunkEndSample = 0;
+		int frames = 0;
+		int notes = 0;
+
+		Chain(int numChannels, SampleFormat format, boolean yin, boolean poly, int channel)
+		{
+			channels = numChannels;
+			polyphonic = poly;
+			captureDecoder = new SampleDecoder(format);
+			if (yin)
+				detector.setEstimator(new YinPitchEstimator());
+			detector.configure(WINDOW, HOP, WindowFunction.HANN, RATE, format, channels);
+			detector.setChannel(channel);
+			detector.setFrameListener(this);
+			detector.enableVolume(true);
+			onsetDetector.configure(WINDOW, detector.getHopSize(), RATE);
+			onsetDetector.setNoteListener(this);
+			polyDetector.configure(WINDOW, RATE, 1.0, detector.getWindowGain());
+			polyDetector.setNoteListener(this);
+			chunk = new float[Math.min(HOP, BUFFER_FRAMES) * channels];
+		}
+
+		// the PortAudio callback
+		void callback(ByteBuffer input)
+		{
+			ring.write(input, captureDecoder, System.nanoTime());
+		}
+
+		// the analysis thread, once woken up
+		void drain()
+		{
+			while (ring.read(chunk, 0, chunk.length))
+			{
+				chunkNanos = ring.captureNanos(ring.getReadPosition(), RATE * channels);
+				chunkEndSample += chunk.length / channels;
+				detector.process(chunk, 0, chunk.length);
+			}
+		}
+
+		public void frameAnalyzed(PitchDetector d, boolean validPeak)
+		{
+			frames++;
+			if (polyphonic)
+				polyDetector.analyze(d.getMagnitude());
+			monitor.setVolume(d.getVolume());
+			int pitch = 0;
+			double cents = 0;
+			if (validPeak)
+			{
+				pitch = Math.max(0, PitchMath.pitchFromFrequency(d.getFrequency()));
+				cents = PitchMath.centsFromFrequency(d.getFrequency());
+				monitor.setSpectrum(d.getMagnitude(), RATE);
+			}
+			if (polyphonic == false)
+				onsetDetector.analyze(d.getMagnitude(), d.getFrame(), d.getFrameTime(), pitch);
+			monitor.setPitch(polyphonic == false ? onsetDetector.getActivePitch() : pitch, cents);
+			monitor.publish();
+		}
+
+		public void noteOn(int pitch, int velocity, long sampleTime)
+		{
+			noteEvent(pitch, velocity, sampleNanos(sampleTime) / 1000);
+		}
+
+		public void noteOff(int pitch, long sampleTime)
+		{
+			noteEvent(pitch, 0, sampleNanos(sampleTime) / 1000);
+		}
+
+		public void noteEvent(int pitch, int velocity)
+		{
+			noteEvent(pitch, velocity, sampleNanos(detector.getFrameTime()) / 1000);
+		}
+
+		void noteEvent(int pitch, int velocity, long timestamp)
+		{
+			notes++;
+			try {
+				noteMessage.setMessage(ShortMessage.NOTE_ON, 0, pitch, velocity);
+				noteReceiver.send(noteMessage, timestamp);
+			} catch (InvalidMidiDataException e) { }
+		}
+
+		long sampleNanos(long sampleTime)
+		{
+			return chunkNanos - (long)((chunkEndSample - sampleTime) * 1e9 / RATE);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.Random;
+
+/*
+ * Compares FloatFFT_1D with DoubleFFT_1D at the analysis window sizes.
+ * Not part of the application: compile it against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/FloatFFTBenchmark.java
+ *   java -cp bin FloatFFTBenchmark [iterations]
+ *
+ * The tree has no build to pull JMH in, so this follows its method by hand:
+ * warm-up iterations that are thrown away, then measured iterations reported as
+ * mean +- standard deviation, with results sunk so that the JIT cannot drop the work.
+ * Two workloads are timed for each size:
+ *   fft    realForward alone
+ *   frame  what PitchDetector does per frame: window, realForward and magnitudes
+ * The float results are first checked against the double ones.
+ * Exits with status 1 if they differ by more than float rounding.
+ */
+public class FloatFFTBenchmark
+{
+	private static final int WARMUP = 5;
+	private static final int MEASURE = 10;
+	private static final double TOLERANCE = 1e-5; // relative to the largest magnitude
+
+	static double sink = 0;
+
+	public static void main(String[] args)
+	{
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		Random random = new Random(1);
+
+		double worst = 0;
+		int[] checked = { 1000, 1024, 2048, 3000, 4096, 8192 }; // mixed-radix, split-radix and Bluestein
+		for (int s = 0; s < checked.length; s++)
+			worst = Math.max(worst, check(checked[s], random));
+		System.out.println("[FloatFFTBenchmark] max relative error float vs double " + worst);
+		if (worst > TOLERANCE)
+		{
+			System.out.println("[FloatFFTBenchmark] FAILED");
+			System.exit(1);
+		}
+
+		System.out.println("  size  workload  double us/op        float us/op         float/double");
+		int[] sizes = { 1024, 2048, 4096, 8192 };
+		for (int s = 0; s < sizes.length; s++)
+		{
+			int n = sizes[s];
+			double[] src = new double[n];
+			for (int i = 0; i < n; i++)
+				src[i] = random.nextDouble() * 2 - 1;
+			for (int w = 0; w < 2; w++)
+			{
+				boolean frame = w == 1;
+				double[] d = measure(new DoubleRun(n, src, frame), iterations);
+				double[] f = measure(new FloatRun(n, src, frame), iterations);
+				System.out.println(String.format("  %4d  %-8s  %7.2f +- %-6.2f   %7.2f +- %-6.2f   %.2f",
+						n, frame ? "frame" : "fft", d[0], d[1], f[0], f[1], f[0] / d[0]));
+			}
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	private static double check(int n, Random random)
+	{
+		double[] d = new double[n];
+		float[] f = new float[n];
+		for (int i = 0; i < n; i++)
+		{
+			d[i] = random.nextDouble() * 2 - 1;
+			f[i] = (float)d[i];
+		}
+		new DoubleFFT_1D(n).realForward(d);
+		new FloatFFT_1D(n).realForward(f);
+		double scale = 0, err = 0;
+		for (int i = 0; i < n; i++)
+		{
+			scale = Math.max(scale, Math.abs(d[i]));
+			err = Math.max(err, Math.abs(d[i] - f[i]));
+		}
+		return err / scale;
+	}
+
+	// mean and standard deviation in microseconds per operation of the measured iterations
+	private static double[] measure(Runnable op, int iterations)
+	{
+		double[] times = new double[MEASURE];
+		for (int it = 0; it < WARMUP + MEASURE; it++)
+		{
+			long t = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				op.run();
+			double us = (System.nanoTime() - t) / 1000.0 / iterations;
+			if (it >= WARMUP)
+				times[it - WARMUP] = us;
+		}
+		double mean = 0, var = 0;
+		for (int i = 0; i < MEASURE; i++)
+			mean += times[i];
+		mean /= MEASURE;
+		for (int i = 0; i < MEASURE; i++)
+			var += (times[i] - mean) * (times[i] - mean);
+		return new double[] { mean, Math.sqrt(var / (MEASURE - 1)) };
+	}
+
+	private static class DoubleRun implements Runnable
+	{
+		final DoubleFFT_1D fft;
+		final double[] src, data, window, magnitude;
+		final boolean frame;
+
+		DoubleRun(int n, double[] s, boolean fullFrame)
+		{
+			fft = DoubleFFT_1D.forSize(n);
+			src = s;
+			data = new double[n];
+			window = WindowFunction.create(WindowFunction.HANN, n);
+			magnitude = new double[n / 2];
+			frame = fullFrame;
+		}
+
+		public void run()
+		{
+			int n = data.length;
+			if (frame)
+				for (int i = 0; i < n; i++)
+					data[i] = src[i] * window[i];
+			else
+				System.arraycopy(src, 0, data, 0, n);
+			fft.realForward(data);
+			if (frame)
+			{
+				magnitude[0] = Math.abs(data[0]);
+				for (int i = 1; i < n / 2; i++)
+					magnitude[i] = Math.sqrt(data[2 * i] * data[2 * i] + data[2 * i + 1] * data[2 * i + 1]);
+				sink += magnitude[n / 8];
+			}
+			else
+				sink += data[2];
+		}
+	}
+
+	private static class FloatRun implements Runnable
+	{
+		final FloatFFT_1D fft;
+		final float[] src, data, window, magnitude;
+		final boolean frame;
+
+		FloatRun(int n, double[] s, boolean fullFrame)
+		{
+			fft = FloatFFT_1D.forSize(n);
+			src = new float[n];
+			data = new float[n];
+			window = new float[n];
+			double[] table = WindowFunction.create(WindowFunction.HANN, n);
+			for (int i = 0; i < n; i++)
+			{
+				src[i] = (float)s[i];
+				window[i] = (float)table[i];
+			}
+			magnitude = new float[n / 2];
+			frame = fullFrame;
+		}
+
+		public void run()
+		{
+			int n = data.length;
+			if (frame)
+				for (int i = 0; i < n; i++)
+					data[i] = src[i] * window[i];
+			else
+				System.arraycopy(src, 0, data, 0, n);
+			fft.realForward(data);
+			if (frame)
+			{
+				magnitude[0] = Math.abs(data[0]);
+				for (int i = 1; i < n / 2; i++)
+					magnitude[i] = (float)Math.sqrt(data[2 * i] * data[2 * i] + data[2 * i + 1] * data[2 * i + 1]);
+				sink += magnitude[n / 8];
+			}
+			else
+				sink += data[2];
+		}
+	}
+}
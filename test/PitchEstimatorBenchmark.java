@@ -0,0 +1,404 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.jpab.StreamConfiguration.SampleFormat;
+
+/*
+ * Compares the pitch estimators, FFT peak and YIN, on WAV fixtures: accuracy and latency.
+ * Not part of the application: compile it against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/PitchEstimatorBenchmark.java
+ *   java -cp bin PitchEstimatorBenchmark [file.wav ...]
+ *   java -cp bin PitchEstimatorBenchmark -generate dir
+ *
+ * Without arguments every WAV in test/fixtures is used. The expected MIDI pitch of a
+ * file is the number at the end of its name, as in piano_C3_48.wav, so recordings can be
+ * added by naming them that way; they should start at the onset of a single held note.
+ * The fixtures in the tree are synthetic, written by -generate with a fixed seed: a sine,
+ * piano-like tones with inharmonic partials and weak fundamentals, voice-like tones with
+ * formants and vibrato, and a plucked string. The piano and voice ones are the cases
+ * where the largest bin is a harmonic instead of the fundamental.
+ *
+ * Every file goes through a PitchDetector as in capture: 4096 samples Hann windows
+ * every 512 samples. For each estimator it reports
+ *   correct   frames whose pitch is the expected one
+ *   harmonic  frames on the 2nd to 6th harmonic of the expected pitch
+ *   cents     median deviation of the correct frames from the expected pitch
+ *   first     audio time of the first correct frame, from the start of the file
+ *   us/frame  time spent in estimate(), mean +- standard deviation of the measured passes
+ * Timing follows FloatFFTBenchmark: warm-up passes first, then measured ones.
+ */
+public class PitchEstimatorBenchmark
+{
+	private static final float RATE = 44100;
+	private static final int WINDOW = 4096;
+	private static final int HOP = 512;
+	private static final int WARMUP = 5;
+	private static final int MEASURE = 20;
+
+	public static void main(String[] args) throws IOException, UnsupportedAudioFileException
+	{
+		if (args.length == 2 && args[0].equals("-generate"))
+		{
+			generate(new File(args[1]));
+			return;
+		}
+
+		File[] files;
+		if (args.length > 0)
+		{
+			files = new File[args.length];
+			for (int i = 0; i < args.length; i++)
+				files[i] = new File(args[i]);
+		}
+		else
+		{
+			files = new File("test/fixtures").listFiles();
+			if (files == null)
+			{
+				System.out.println("[PitchEstimatorBenchmark] test/fixtures not found: run from the project directory or list the files");
+				System.exit(1);
+			}
+			Arrays.sort(files);
+		}
+
+		int count = 0;
+		String[] names = new String[files.length];
+		float[][] samples = new float[files.length][];
+		int[] expected = new int[files.length];
+		for (int f = 0; f < files.length; f++)
+		{
+			if (files[f].getName().endsWith(".wav") == false)
+				continue;
+			expected[count] = expectedPitch(files[f].getName());
+			if (expected[count] < 0)
+			{
+				System.out.println("  " + files[f].getName() + ": no expected pitch at the end of the name, skipped");
+				continue;
+			}
+			names[count] = files[f].getName();
+			samples[count++] = readWav(files[f]);
+		}
+
+		// warm-up passes over all the files, so that the first one is not timed while the JIT works
+		Run[][] runs = new Run[count][2];
+		for (int f = 0; f < count; f++)
+		{
+			runs[f][0] = new Run(new TimedEstimator(new FFTPeakEstimator()), expected[f]);
+			runs[f][1] = new Run(new TimedEstimator(new YinPitchEstimator()), expected[f]);
+		}
+		for (int it = 0; it < WARMUP; it++)
+			for (int f = 0; f < count; f++)
+				for (int e = 0; e < 2; e++)
+					runs[f][e].process(samples[f]);
+
+		System.out.println("  file                  estimator  correct  harmonic   cents    first     us/frame");
+		for (int f = 0; f < count; f++)
+		{
+			measure(names[f], "FFT peak", runs[f][0], samples[f]);
+			measure(names[f], "YIN", runs[f][1], samples[f]);
+		}
+	}
+
+	private static void measure(String name, String estimatorName, Run run, float[] samples)
+	{
+		TimedEstimator timed = run.estimator;
+		double[] times = new double[MEASURE];
+		for (int it = 0; it < MEASURE; it++)
+		{
+			timed.nanos = 0;
+			timed.calls = 0;
+			run.process(samples);
+			times[it] = timed.nanos / 1000.0 / timed.calls;
+		}
+		double mean = 0, var = 0;
+		for (int i = 0; i < MEASURE; i++)
+			mean += times[i];
+		mean /= MEASURE;
+		for (int i = 0; i < MEASURE; i++)
+			var += (times[i] - mean) * (times[i] - mean);
+
+		String first = run.firstCorrect < 0 ? "-" : String.format("%.0f ms", run.firstCorrect * 1000.0 / RATE);
+		String cents = run.correct == 0 ? "-" : String.format("%.1f", run.medianCents());
+		System.out.println(String.format("  %-22s %-9s  %5.1f%%   %5.1f%%   %6s  %7s  %7.1f +- %.1f",
+				name, estimatorName, 100.0 * run.correct / run.frames, 100.0 * run.harmonic / run.frames,
+				cents, first, mean, Math.sqrt(var / (MEASURE - 1))));
+	}
+
+	// number after the last '_' of the name, or -1
+	private static int expectedPitch(String name)
+	{
+		String base = name.substring(0, name.length() - 4);
+		try {
+			int pitch = Integer.parseInt(base.substring(base.lastIndexOf('_') + 1));
+			return pitch >= 0 && pitch < 128 ? pitch : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	// one pass of a file through a detector, with the accuracy of its frames
+	private static class Run implements PitchDetector.FrameListener
+	{
+		final PitchDetector detector = new PitchDetector();
+		final TimedEstimator estimator;
+		final int expected;
+		final double expectedFreq;
+		int frames, correct, harmonic;
+		long firstCorrect;
+		double[] cents = new double[0];
+
+		Run(TimedEstimator e, int expectedPitch)
+		{
+			estimator = e;
+			expected = expectedPitch;
+			expectedFreq = 440 * Math.pow(2, (expected - 69) / 12.0);
+			detector.setEstimator(estimator);
+			detector.configure(WINDOW, HOP, WindowFunction.HANN, RATE, SampleFormat.FLOAT_32);
+			detector.setFrameListener(this);
+		}
+
+		void process(float[] samples)
+		{
+			frames = correct = harmonic = 0;
+			firstCorrect = -1;
+			if (cents.length < samples.length / HOP)
+				cents = new double[samples.length / HOP];
+			detector.reset();
+			for (int off = 0; off < samples.length; off += HOP)
+				detector.process(samples, off, Math.min(HOP, samples.length - off));
+		}
+
+		public void frameAnalyzed(PitchDetector d, boolean validPeak)
+		{
+			frames++;
+			if (validPeak == false || d.getFrequency() <= 0)
+				return;
+			int diff = PitchMath.pitchFromFrequency(d.getFrequency()) - expected;
+			if (diff == 0)
+			{
+				cents[correct++] = Math.abs(1200 * Math.log(d.getFrequency() / expectedFreq) / Math.log(2));
+				if (firstCorrect < 0)
+					firstCorrect = d.getFrameTime();
+			}
+			else if (diff == 12 || diff == 19 || diff == 24 || diff == 28 || diff == 31)
+				harmonic++;
+		}
+
+		double medianCents()
+		{
+			double[] sorted = Arrays.copyOf(cents, correct);
+			Arrays.sort(sorted);
+			return sorted[correct / 2];
+		}
+	}
+
+	// measures the time spent in estimate()
+	private static class TimedEstimator implements PitchEstimator
+	{
+		final PitchEstimator estimator;
+		long nanos = 0;
+		int calls = 0;
+
+		TimedEstimator(PitchEstimator e)
+		{
+			estimator = e;
+		}
+
+		public void configure(int frameSize, float sampleRate)
+		{
+			estimator.configure(frameSize, sampleRate);
+		}
+
+		public double estimate(float[] samples, float[] magnitude)
+		{
+			long t = System.nanoTime();
+			double f = estimator.estimate(samples, magnitude);
+			nanos += System.nanoTime() - t;
+			calls++;
+			return f;
+		}
+
+		public double getConfidence()
+		{
+			return estimator.getConfidence();
+		}
+	}
+
+	// mono samples in [-1, 1) of a PCM WAV file. Channels are averaged
+	private static float[] readWav(File file) throws IOException, UnsupportedAudioFileException
+	{
+		AudioInputStream ais = AudioSystem.getAudioInputStream(file);
+		AudioFormat src = ais.getFormat();
+		if (src.getSampleRate() != RATE)
+			throw new UnsupportedAudioFileException(file + ": only " + RATE + " Hz files are supported");
+		AudioFormat fmt = new AudioFormat(RATE, 16, src.getChannels(), true, false);
+		AudioInputStream pcm = AudioSystem.getAudioInputStream(fmt, ais);
+		byte[] bytes = new byte[(int)pcm.getFrameLength() * fmt.getFrameSize()];
+		int len = 0, n;
+		while (len < bytes.length && (n = pcm.read(bytes, len, bytes.length - len)) > 0)
+			len += n;
+		pcm.close();
+
+		int channels = fmt.getChannels();
+		float[] samples = new float[len / fmt.getFrameSize()];
+		for (int i = 0; i < samples.length; i++)
+		{
+			int sum = 0;
+			for (int c = 0; c < channels; c++)
+			{
+				int idx = (i * channels + c) * 2;
+				sum += (bytes[idx + 1] << 8) | (bytes[idx] & 0xFF);
+			}
+			samples[i] = sum / (32768.0f * channels);
+		}
+		return samples;
+	}
+
+	// ************************** fixtures ******************************
+
+	private static final double SECONDS = 0.75;
+
+	private static void generate(File dir) throws IOException
+	{
+		dir.mkdirs();
+		Random random = new Random(5);
+		write(new File(dir, "sine_A4_69.wav"), sine(69));
+		write(new File(dir, "piano_C3_48.wav"), piano(48, new double[] { 0.35, 1, 0.7, 0.5, 0.3, 0.2, 0.15, 0.1 }, random));
+		write(new File(dir, "piano_A1_33.wav"), piano(33, new double[] { 0.1, 0.6, 1, 0.8, 0.6, 0.5, 0.4, 0.3, 0.2, 0.15 }, random));
+		write(new File(dir, "voice_E3_52.wav"), voice(52, random));
+		write(new File(dir, "voice_G4_67.wav"), voice(67, random));
+		write(new File(dir, "pluck_E2_40.wav"), pluck(40, random));
+	}
+
+	private static double frequency(int pitch)
+	{
+		return 440 * Math.pow(2, (pitch - 69) / 12.0);
+	}
+
+	private static double[] sine(int pitch)
+	{
+		double[] s = new double[(int)(SECONDS * RATE)];
+		for (int i = 0; i < s.length; i++)
+			s[i] = Math.sin(2 * Math.PI * frequency(pitch) * i / RATE);
+		return s;
+	}
+
+	// stretched partials (f_n = n f0 sqrt(1 + B n^2)), the higher ones decaying faster, and a hammer noise burst
+	private static double[] piano(int pitch, double[] partials, Random random)
+	{
+		double f0 = frequency(pitch);
+		double inharmonicity = 0.0004;
+		double[] s = new double[(int)(SECONDS * RATE)];
+		for (int n = 1; n <= partials.length; n++)
+		{
+			double f = n * f0 * Math.sqrt(1 + inharmonicity * n * n);
+			double phase = random.nextDouble() * 2 * Math.PI;
+			for (int i = 0; i < s.length; i++)
+			{
+				double t = i / RATE;
+				s[i] += partials[n - 1] * Math.exp(-t * (1.5 + 0.6 * n)) * Math.sin(2 * Math.PI * f * t + phase);
+			}
+		}
+		for (int i = 0; i < RATE / 50; i++)
+			s[i] += 0.3 * (1 - i / (RATE / 50)) * (random.nextDouble() * 2 - 1);
+		return s;
+	}
+
+	// 1/n harmonics shaped by the formants of an open vowel, 5.5 Hz vibrato of +-20 cents, some breath noise
+	private static double[] voice(int pitch, Random random)
+	{
+		double[] formants = { 700, 1220, 2600 };
+		double[] widths = { 130, 70, 160 };
+		double f0 = frequency(pitch);
+		double[] s = new double[(int)(SECONDS * RATE)];
+		double phase = 0;
+		for (int i = 0; i < s.length; i++)
+		{
+			double t = i / RATE;
+			double f = f0 * Math.pow(2, 20 * Math.sin(2 * Math.PI * 5.5 * t) / 1200);
+			phase += 2 * Math.PI * f / RATE;
+			for (int n = 1; n * f0 < 5000; n++)
+			{
+				double gain = 0;
+				for (int k = 0; k < formants.length; k++)
+				{
+					double d = (n * f0 - formants[k]) / widths[k];
+					gain += 1 / (1 + d * d);
+				}
+				s[i] += gain / n * Math.sin(n * phase);
+			}
+			s[i] = s[i] * Math.min(1, t / 0.03) + 0.01 * (random.nextDouble() * 2 - 1);
+		}
+		return s;
+	}
+
+	// Karplus-Strong string. The burst has no DC, which an input device would block anyway
+	private static double[] pluck(int pitch, Random random)
+	{
+		int period = (int)Math.round(RATE / frequency(pitch));
+		double[] line = new double[period];
+		double mean = 0;
+		for (int i = 0; i < period; i++)
+		{
+			line[i] = random.nextDouble() * 2 - 1;
+			mean += line[i] / period;
+		}
+		for (int i = 0; i < period; i++)
+			line[i] -= mean;
+		double[] s = new double[(int)(SECONDS * RATE)];
+		for (int i = 0; i < s.length; i++)
+		{
+			int j = i % period;
+			s[i] = line[j];
+			line[j] = 0.996 * 0.5 * (line[j] + line[(j + 1) % period]);
+		}
+		return s;
+	}
+
+	// 16 bit mono, normalized to a peak of 0.7
+	private static void write(File file, double[] s) throws IOException
+	{
+		double peak = 0;
+		for (int i = 0; i < s.length; i++)
+			peak = Math.max(peak, Math.abs(s[i]));
+		byte[] bytes = new byte[s.length * 2];
+		for (int i = 0; i < s.length; i++)
+		{
+			int v = (int)Math.round(s[i] / peak * 0.7 * 32767);
+			bytes[2 * i] = (byte)v;
+			bytes[2 * i + 1] = (byte)(v >> 8);
+		}
+		AudioFormat fmt = new AudioFormat(RATE, 16, 1, true, false);
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(bytes), fmt, s.length), AudioFileFormat.Type.WAVE, file);
+		System.out.println("[PitchEstimatorBenchmark] wrote " + file);
+	}
+}
@@ -0,0 +1,194 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.Random;
+import java.util.Vector;
+
+/*
+ * Compares PitchMath with the frequency lookup AudioInputController used before it:
+ * a linear scan of a Vector<Double> of 7 octaves.
+ * Not part of the application: compile it against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/PitchMathBenchmark.java
+ *   java -cp bin PitchMathBenchmark [iterations]
+ *
+ * PitchMath is first checked on every MIDI pitch, from 49 cents flat to 49 cents sharp.
+ * Exits with status 1 on a mismatch. Then three workloads are timed on the same random
+ * frequencies, within the range the old table covered:
+ *   vector       the old scan, boxing and synchronization included
+ *   pitch        PitchMath.pitchFromFrequency
+ *   pitch+cents  pitchFromFrequency and centsFromFrequency, as frequencyLookup does now
+ * Timing follows FloatFFTBenchmark: warm-up iterations, then measured ones reported
+ * as mean +- standard deviation, with results sunk so that the JIT cannot drop the work.
+ */
+public class PitchMathBenchmark
+{
+	private static final int WARMUP = 5;
+	private static final int MEASURE = 10;
+	private static final double TOLERANCE = 1e-6; // cents
+
+	static double sink = 0;
+
+	public static void main(String[] args)
+	{
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		double worst = 0;
+		int wrong = 0;
+		for (int p = 0; p < 128; p++)
+		{
+			for (int c = -49; c <= 49; c++)
+			{
+				double freq = PitchMath.frequencyFromPitch(p) * Math.pow(2, c / 1200.0);
+				if (PitchMath.pitchFromFrequency(freq) != p)
+					wrong++;
+				worst = Math.max(worst, Math.abs(PitchMath.centsFromFrequency(freq) - c));
+			}
+		}
+		System.out.println("[PitchMathBenchmark] pitches 0..127, +-49 cents: " + wrong + " wrong pitches, max cents error " + worst);
+		if (wrong > 0 || worst > TOLERANCE)
+		{
+			System.out.println("[PitchMathBenchmark] FAILED");
+			System.exit(1);
+		}
+
+		Random random = new Random(1);
+		VectorLookup old = new VectorLookup();
+		double[] freqs = new double[4096];
+		for (int i = 0; i < freqs.length; i++)
+			freqs[i] = 30 * Math.pow(2, random.nextDouble() * 7); // 30 Hz to 3.8 kHz
+
+		System.out.println("  workload      ns/lookup");
+		report("vector", measure(new VectorScan(old, freqs), iterations, freqs.length));
+		report("pitch", measure(new Pitch(freqs, false), iterations, freqs.length));
+		report("pitch+cents", measure(new Pitch(freqs, true), iterations, freqs.length));
+		if (sink == 42)
+			System.out.println();
+	}
+
+	private static void report(String name, double[] t)
+	{
+		System.out.println(String.format("  %-12s  %6.2f +- %.2f", name, t[0], t[1]));
+	}
+
+	// mean and standard deviation in nanoseconds per lookup of the measured iterations
+	private static double[] measure(Runnable op, int iterations, int lookups)
+	{
+		double[] times = new double[MEASURE];
+		for (int it = 0; it < WARMUP + MEASURE; it++)
+		{
+			long t = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				op.run();
+			double ns = (double)(System.nanoTime() - t) / iterations / lookups;
+			if (it >= WARMUP)
+				times[it - WARMUP] = ns;
+		}
+		double mean = 0, var = 0;
+		for (int i = 0; i < MEASURE; i++)
+			mean += times[i];
+		mean /= MEASURE;
+		for (int i = 0; i < MEASURE; i++)
+			var += (times[i] - mean) * (times[i] - mean);
+		return new double[] { mean, Math.sqrt(var / (MEASURE - 1)) };
+	}
+
+	// initFrequenciesList and frequencyLookup as AudioInputController had them
+	private static class VectorLookup
+	{
+		Vector<Double> freqList = new Vector<Double>();
+
+		VectorLookup()
+		{
+			double freqFactor = Math.pow(2, 1.0/12.0);
+			double aFreq = 27.50;
+			double currFreq = 16.35; // frequency of C0
+			for (int oct = 0; oct < 7; oct++)
+			{
+				for (int i = 0; i < 12; i++)
+				{
+					if (i == 9) // back on track when encounter an A
+					{
+						currFreq = aFreq;
+						aFreq*=2;
+					}
+					freqList.add(currFreq);
+					currFreq *= freqFactor;
+				}
+			}
+		}
+
+		int frequencyLookup(double freq)
+		{
+			int startIdx = 0;
+			if (freq > freqList.get(freqList.size() / 2))
+				startIdx = freqList.size() / 2;
+			for (int i = startIdx; i < freqList.size(); i++)
+			{
+				if (freq < freqList.get(i))
+					return i + 23;
+			}
+			return 0;
+		}
+	}
+
+	private static class VectorScan implements Runnable
+	{
+		final VectorLookup lookup;
+		final double[] freqs;
+
+		VectorScan(VectorLookup l, double[] f)
+		{
+			lookup = l;
+			freqs = f;
+		}
+
+		public void run()
+		{
+			int sum = 0;
+			for (int i = 0; i < freqs.length; i++)
+				sum += lookup.frequencyLookup(freqs[i]);
+			sink += sum;
+		}
+	}
+
+	private static class Pitch implements Runnable
+	{
+		final double[] freqs;
+		final boolean cents;
+
+		Pitch(double[] f, boolean withCents)
+		{
+			freqs = f;
+			cents = withCents;
+		}
+
+		public void run()
+		{
+			double sum = 0;
+			for (int i = 0; i < freqs.length; i++)
+			{
+				sum += PitchMath.pitchFromFrequency(freqs[i]);
+				if (cents)
+					sum += PitchMath.centsFromFrequency(freqs[i]);
+			}
+			sink += sum;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+/*
+ * Checks DoubleFFT_1D.realForward against complexForward and times both.
+ * Not part of the application: compile it against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/RealForwardCheck.java
+ *   java -cp bin RealForwardCheck [iterations]
+ *
+ * Every size from 2 to 4096 is checked, which covers the split-radix,
+ * mixed-radix and Bluestein plans, each one twice in a row to catch state
+ * left behind by the reused work buffers. Exits with status 1 on a mismatch.
+ */
+public class RealForwardCheck
+{
+	private static final double TOLERANCE = 1e-9; // relative to the largest magnitude
+
+	public static void main(String[] args)
+	{
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		java.util.Random random = new java.util.Random(1);
+
+		double worst = 0;
+		int worstSize = 0;
+		for (int n = 2; n <= 4096; n++)
+		{
+			DoubleFFT_1D fft = new DoubleFFT_1D(n);
+			for (int pass = 0; pass < 2; pass++)
+			{
+				double err = check(fft, n, random);
+				if (err > worst)
+				{
+					worst = err;
+					worstSize = n;
+				}
+			}
+		}
+		System.out.println("[RealForwardCheck] n = 2..4096, max relative error " + worst + " (n = " + worstSize + ")");
+		if (worst > TOLERANCE)
+		{
+			System.out.println("[RealForwardCheck] FAILED");
+			System.exit(1);
+		}
+
+		int[] sizes = { 2048, 4096, 8192 };
+		for (int s = 0; s < sizes.length; s++)
+			benchmark(sizes[s], iterations, random);
+	}
+
+	// largest difference between the two transforms, over the largest magnitude
+	private static double check(DoubleFFT_1D fft, int n, java.util.Random random)
+	{
+		double[] real = new double[n];
+		double[] complex = new double[2 * n];
+		for (int i = 0; i < n; i++)
+		{
+			real[i] = random.nextDouble() * 2 - 1;
+			complex[2 * i] = real[i];
+		}
+		fft.realForward(real);
+		fft.complexForward(complex);
+
+		double scale = 0;
+		double err = 0;
+		for (int i = 0; i < 2 * n; i++)
+			scale = Math.max(scale, Math.abs(complex[i]));
+
+		// packed layout: a[0] = Re[0], a[1] = Re[n/2] (even n) or Im[(n-1)/2] (odd n).
+		// Both are at index n of the complex output
+		err = Math.max(err, Math.abs(real[0] - complex[0]));
+		err = Math.max(err, Math.abs(real[1] - complex[n]));
+		int half = n % 2 == 0 ? n / 2 : (n + 1) / 2;
+		for (int k = 1; k < half; k++)
+		{
+			err = Math.max(err, Math.abs(real[2 * k] - complex[2 * k]));
+			if (n % 2 == 1 && k == half - 1)
+				continue; // its imaginary part is in a[1]
+			err = Math.max(err, Math.abs(real[2 * k + 1] - complex[2 * k + 1]));
+		}
+		return scale > 0 ? err / scale : err;
+	}
+
+	private static void benchmark(int n, int iterations, java.util.Random random)
+	{
+		DoubleFFT_1D fft = new DoubleFFT_1D(n);
+		double[] source = new double[n];
+		for (int i = 0; i < n; i++)
+			source[i] = random.nextDouble() * 2 - 1;
+		double[] real = new double[n];
+		double[] complex = new double[2 * n];
+		double sink = 0;
+
+		long complexNanos = 0, realNanos = 0;
+		for (int round = 0; round < 2; round++) // first round is warm up
+		{
+			long t0 = System.nanoTime();
+			for (int it = 0; it < iterations; it++)
+			{
+				for (int i = 0; i < n; i++)
+				{
+					complex[2 * i] = source[i];
+					complex[2 * i + 1] = 0;
+				}
+				fft.complexForward(complex);
+				sink += complex[2];
+			}
+			long t1 = System.nanoTime();
+			for (int it = 0; it < iterations; it++)
+			{
+				System.arraycopy(source, 0, real, 0, n);
+				fft.realForward(real);
+				sink += real[2];
+			}
+			long t2 = System.nanoTime();
+			complexNanos = t1 - t0;
+			realNanos = t2 - t1;
+		}
+		System.out.println("  n=" + n + "  complex " + String.format("%.1f", complexNanos / 1000.0 / iterations) + " us" +
+						   "  real " + String.format("%.1f", realNanos / 1000.0 / iterations) + " us" +
+						   "  (" + String.format("%.2f", (double)complexNanos / realNanos) + "x)" + (sink == 0 ? " " : ""));
+	}
+}
@@ -0,0 +1,287 @@
+/***********************************************
+This file is part of the ScoreDate project
+
+ScoreDate is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+ScoreDate is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with ScoreDate.  If not, see <http://www.gnu.org/licenses/>.
+
+**********************************************/
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+
+/*
+ * Benchmarks of the game timelines. Not part of the application: compile it
+ * against the classes built from src.
+ *
+ *   javac -cp bin -d bin test/TimelineBenchmark.java
+ *   java -cp bin TimelineBenchmark [notes per row] [rounds]
+ *
+ * 1. listener side: a dense two hand score (sixteenth notes in both rows, with their
+ *    sound events) is dispatched once through the text meta messages used before
+ *    and once through the opcode switch.
+ * 2. RealTimeScheduler: the same kind of score is played with one event every
+ *    millisecond, and the lateness of the events is reported.
+ * 3. RealTimeScheduler burst: events due at the same time show what one dispatch
+ *    costs on the scheduler thread.
+ */
+public class TimelineBenchmark
+{
+	public static void main(String[] args) throws InterruptedException
+	{
+		int notes = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+		decodeBenchmark(notes, rounds);
+		RealTimeScheduler scheduler = new RealTimeScheduler();
+		try {
+			schedulerBenchmark(scheduler, 500, 1000000L); // warm up
+			schedulerBenchmark(scheduler, 2000, 1000000L);
+			burstBenchmark(scheduler, 1000);
+			burstBenchmark(scheduler, 1000);
+		} finally {
+			scheduler.close();
+		}
+	}
+
+	private static void decodeBenchmark(int notes, int rounds)
+	{
+		int bpm = 240;
+
+		// same events, in the same order, as MidiController.createPlayback
+		int count = notes * 2 * 4;
+		Timeline timeline = new Timeline(count);
+		MetaMessage[] legacy = new MetaMessage[count];
+		int n = 0;
+		try {
+			for (int i = 0; i < notes; i++)
+			{
+				for (int row = 0; row < 2; row++)
+				{
+					int pitch = row == 0 ? 60 + (i % 24) : 36 + (i % 24);
+					timeline.add(i, TimelineEvent.PLAY_NOTE_ON, pitch);
+					legacy[n++] = textMessage("fsnOn" + pitch);
+					timeline.add(i, row == 0 ? TimelineEvent.NOTE_ON : TimelineEvent.NOTE2_ON, i);
+					legacy[n++] = textMessage(row == 0 ? "nOn" : "n2On");
+					timeline.add(i + 1, TimelineEvent.PLAY_NOTE_OFF, pitch);
+					legacy[n++] = textMessage("fsnOff" + pitch);
+					timeline.add(i + 1, row == 0 ? TimelineEvent.NOTE_OFF : TimelineEvent.NOTE2_OFF, i);
+					legacy[n++] = textMessage(row == 0 ? "nOff" : "n2Off");
+				}
+			}
+		}
+		catch (InvalidMidiDataException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		AllocationCounter alloc = new AllocationCounter();
+		long sink = 0;
+		long legacyNanos = 0, switchNanos = 0;
+		long legacyBytes = 0, switchBytes = 0;
+		for (int r = 0; r < rounds; r++)
+		{
+			boolean measure = r >= rounds / 2; // first half is warm up
+			alloc.begin();
+			long t0 = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				sink += decodeText(legacy[i]);
+			long t1 = System.nanoTime();
+			alloc.end();
+			if (measure)
+			{
+				legacyNanos += t1 - t0;
+				legacyBytes += alloc.getLastBytes();
+			}
+
+			alloc.begin();
+			t0 = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				sink += dispatch(timeline.getOpcode(i), timeline.getArg(i));
+			t1 = System.nanoTime();
+			alloc.end();
+			if (measure)
+			{
+				switchNanos += t1 - t0;
+				switchBytes += alloc.getLastBytes();
+			}
+		}
+
+		long dispatched = (long)count * (rounds - rounds / 2);
+		// sixteenth notes in two rows, 4 events each, 4 per beat
+		double eventsPerSecond = (bpm / 60.0) * 4 * 2 * 4;
+		System.out.println("[TimelineBenchmark] " + count + " events, " + eventsPerSecond + " events/s at " + bpm + " BPM (checksum " + sink + ")");
+		System.out.println("  text decoding:   " + String.format("%.1f", (double)legacyNanos / dispatched) + " ns/event, " +
+							(legacyBytes < 0 ? "?" : String.valueOf(legacyBytes / dispatched)) + " bytes/event");
+		System.out.println("  opcode dispatch: " + String.format("%.1f", (double)switchNanos / dispatched) + " ns/event, " +
+							(switchBytes < 0 ? "?" : String.valueOf(switchBytes / dispatched)) + " bytes/event");
+	}
+
+	/*
+	 * Plays events events, one every spacing nanoseconds, split between the playback
+	 * and the metronome slots, and prints the lateness measured by the scheduler.
+	 * A subscriber stands for the synthesizer, the run listener for the game
+	 */
+	private static void schedulerBenchmark(RealTimeScheduler scheduler, int events, long spacing) throws InterruptedException
+	{
+		Timeline playback = new Timeline(events);
+		Timeline metronome = new Timeline(events / 4 + 1);
+		for (int i = 0; i < events - 1; i++)
+		{
+			if (i % 4 == 0)
+				metronome.add(i * spacing, TimelineEvent.CLICK_ON, 76);
+			else
+				playback.add(i * spacing, i % 2 == 0 ? TimelineEvent.PLAY_NOTE_ON : TimelineEvent.PLAY_NOTE_OFF, 60 + i % 24);
+		}
+		playback.add((events - 1) * spacing, TimelineEvent.END, 0);
+		playback.compile();
+		metronome.compile();
+
+		final long[] synthEvents = new long[1];
+		RealTimeScheduler.Listener synth = new RealTimeScheduler.Listener() {
+			public void timelineEvent(int opcode, int arg, long time)
+			{
+				synthEvents[0] += arg;
+			}
+		};
+		final CountDownLatch done = new CountDownLatch(1);
+		final AllocationCounter alloc = new AllocationCounter(); // used on the scheduler thread only
+		RealTimeScheduler.Listener game = new RealTimeScheduler.Listener() {
+			boolean first = true;
+			public void timelineEvent(int opcode, int arg, long time)
+			{
+				if (first == true)
+				{
+					alloc.begin();
+					first = false;
+				}
+				if (opcode == TimelineEvent.END)
+				{
+					alloc.end();
+					done.countDown();
+				}
+			}
+		};
+
+		long before = scheduler.getDispatched();
+		long[] histBefore = new long[RealTimeScheduler.BUCKETS];
+		scheduler.getHistogram(histBefore);
+		scheduler.addListener(synth);
+		scheduler.load(RealTimeScheduler.PLAYBACK, playback);
+		scheduler.load(RealTimeScheduler.METRONOME, metronome);
+		scheduler.start(game);
+		boolean finished = done.await(events * spacing / 1000000L + 5000, TimeUnit.MILLISECONDS);
+		scheduler.removeListener(synth);
+
+		long[] hist = new long[RealTimeScheduler.BUCKETS];
+		scheduler.getHistogram(hist);
+		for (int i = 0; i < hist.length; i++)
+			hist[i] -= histBefore[i];
+		System.out.println("[TimelineBenchmark] scheduler: " + (scheduler.getDispatched() - before) + " events, one every " + 
+							spacing / 1000 + " us" + (finished ? "" : " (timed out)"));
+		System.out.println("  lateness p50 < " + percentile(hist, 0.5) + " us, p99 < " + percentile(hist, 0.99) + 
+							" us, " + alloc.getLastBytes() + " bytes allocated by the scheduler thread");
+		System.out.println("  cumulative " + scheduler.getJitterReport());
+	}
+
+	/*
+	 * Plays events events all due at the same time. The scheduler spins for the first one
+	 * and then dispatches the others back to back, so the time between the first and
+	 * the last call is the cost of the dispatch loop
+	 */
+	private static void burstBenchmark(RealTimeScheduler scheduler, final int events) throws InterruptedException
+	{
+		Timeline burst = new Timeline(events);
+		for (int i = 0; i < events; i++)
+			burst.add(0, i < events - 1 ? TimelineEvent.NOTE_ON : TimelineEvent.END, i);
+		burst.compile();
+
+		final long[] calls = new long[2];
+		final CountDownLatch done = new CountDownLatch(1);
+		RealTimeScheduler.Listener game = new RealTimeScheduler.Listener() {
+			public void timelineEvent(int opcode, int arg, long time)
+			{
+				if (arg == 0)
+					calls[0] = System.nanoTime();
+				if (opcode == TimelineEvent.END)
+				{
+					calls[1] = System.nanoTime();
+					done.countDown();
+				}
+			}
+		};
+		scheduler.load(RealTimeScheduler.PLAYBACK, burst);
+		scheduler.start(game);
+		boolean finished = done.await(5000, TimeUnit.MILLISECONDS);
+		System.out.println("[TimelineBenchmark] burst of " + events + " events: " + 
+							String.format("%.1f", (calls[1] - calls[0]) / (double)(events - 1)) + " ns/event" + 
+							(finished ? "" : " (timed out)"));
+	}
+
+	// upper bound in microseconds of the histogram bucket holding the percentile
+	private static long percentile(long[] histogram, double p)
+	{
+		long total = 0;
+		for (int i = 0; i < histogram.length; i++)
+			total += histogram[i];
+		long target = (long)Math.ceil(total * p), count = 0;
+		for (int i = 0; i < histogram.length; i++)
+		{
+			count += histogram[i];
+			if (count >= target && count > 0)
+				return 2L << i;
+		}
+		return 0;
+	}
+
+	private static MetaMessage textMessage(String text) throws InvalidMidiDataException
+	{
+		MetaMessage msg = new MetaMessage();
+		msg.setMessage(0x01, text.getBytes(), text.length());
+		return msg;
+	}
+
+	// what the listeners did before the timeline was precompiled
+	private static int decodeText(MetaMessage msg)
+	{
+		String strData = new String(msg.getData());
+		if ("beat".equals(strData)) return TimelineEvent.BEAT;
+		else if ("gameOn".equals(strData)) return TimelineEvent.GAME_ON;
+		else if ("cursorOn".equals(strData)) return TimelineEvent.CURSOR_ON;
+		else if ("nOn".equals(strData)) return TimelineEvent.NOTE_ON;
+		else if ("nOff".equals(strData)) return TimelineEvent.NOTE_OFF;
+		else if ("n2On".equals(strData)) return TimelineEvent.NOTE2_ON;
+		else if ("n2Off".equals(strData)) return TimelineEvent.NOTE2_OFF;
+		else if ("end".equals(strData)) return TimelineEvent.END;
+		else if ("fsnOn".equals(strData.substring(0, 5)))
+			return Integer.parseInt(strData.substring(5));
+		else if ("fsnOff".equals(strData.substring(0, 6)))
+			return Integer.parseInt(strData.substring(6));
+		return 0;
+	}
+
+	private static int dispatch(int opcode, int arg)
+	{
+		switch (opcode)
+		{
+			case TimelineEvent.PLAY_NOTE_ON:
+			case TimelineEvent.PLAY_NOTE_OFF:
+				return arg;
+			default:
+				return opcode;
+		}
+	}
+}